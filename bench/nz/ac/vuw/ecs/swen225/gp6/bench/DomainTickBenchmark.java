@@ -0,0 +1,77 @@
+package nz.ac.vuw.ecs.swen225.gp6.bench;
+
+import java.util.concurrent.TimeUnit;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Domain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures one tick of the game (Domain.pingDomain) on synthetic levels of different sizes, with
+ * the hero standing still and with the hero moving every tick.
+ *
+ * @author Name: Mahdi Najafi ID: 300606634
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DomainTickBenchmark {
+
+  @Param({"10", "100", "500", "1000", "2000"})
+  public int size;
+
+  @Param({"false", "true"})
+  public boolean packed;
+
+  private Domain domain;
+  private boolean right; //direction of the hero's next move
+
+  /**
+   * makes the game to tick, again every iteration so the moving hero always starts in the middle.
+   */
+  @Setup(Level.Iteration)
+  public void setup() {
+    domain = SyntheticLevels.domain(size, packed);
+    right = true;
+  }
+
+  /**
+   * ticks the game with the hero standing still.
+   *
+   * @return the ticked game
+   */
+  @Benchmark
+  public Domain tickIdle() {
+    domain.pingDomain();
+    return domain;
+  }
+
+  /**
+   * ticks the game with the hero moving left and right, along floors.
+   *
+   * @return the ticked game
+   */
+  @Benchmark
+  public Domain tickMoving() {
+    if (right) {
+      domain.moveRight();
+    } else {
+      domain.moveLeft();
+    }
+    right = !right;
+    domain.pingDomain();
+    return domain;
+  }
+}
@@ -0,0 +1,93 @@
+package nz.ac.vuw.ecs.swen225.gp6.bench;
+
+import java.util.concurrent.TimeUnit;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Domain;
+import nz.ac.vuw.ecs.swen225.gp6.domain.IntegrityCheck.CheckGame;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.Tile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures copying a maze's tiles (what the renderer and inventory panel do every repaint), and
+ * checking the integrity of the game (what every tick does), on synthetic levels of different
+ * sizes.
+ *
+ * @author Name: Mahdi Najafi ID: 300606634
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MazeBenchmark {
+
+  @Param({"10", "100", "500", "1000", "2000"})
+  public int size;
+
+  @Param({"false", "true"})
+  public boolean packed;
+
+  private Domain domain;
+
+  /**
+   * makes the game to copy and check.
+   */
+  @Setup
+  public void setup() {
+    domain = SyntheticLevels.domain(size, packed);
+  }
+
+  /**
+   * goes back to the default integrity check mode.
+   */
+  @TearDown
+  public void tearDown() {
+    CheckGame.setFullScan(false);
+  }
+
+  /**
+   * copies every tile of the maze.
+   *
+   * @return the copied tiles
+   */
+  @Benchmark
+  public Tile[][] getTileArrayCopy() {
+    return domain.getCurrentMaze().getTileArrayCopy();
+  }
+
+  /**
+   * checks the integrity of the game, from the tile counts kept by the maze.
+   *
+   * @param blackhole keeps the check from being optimised away
+   */
+  @Benchmark
+  public void checkCurrentState(Blackhole blackhole) {
+    CheckGame.setFullScan(false);
+    CheckGame.checkCurrentState(domain);
+    blackhole.consume(domain);
+  }
+
+  /**
+   * checks the integrity of the game, scanning the whole maze.
+   *
+   * @param blackhole keeps the check from being optimised away
+   */
+  @Benchmark
+  public void checkCurrentStateFullScan(Blackhole blackhole) {
+    CheckGame.setFullScan(true);
+    CheckGame.checkCurrentState(domain);
+    blackhole.consume(domain);
+  }
+}
@@ -0,0 +1,112 @@
+package nz.ac.vuw.ecs.swen225.gp6.bench;
+
+import java.io.IOException;
+import java.util.Stack;
+import java.util.concurrent.TimeUnit;
+import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Actions;
+import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Pair;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Domain;
+import nz.ac.vuw.ecs.swen225.gp6.persistency.DomainPersistency;
+import nz.ac.vuw.ecs.swen225.gp6.persistency.DomainPersistency.SaveFormat;
+import nz.ac.vuw.ecs.swen225.gp6.persistency.RecorderPersistency;
+import org.dom4j.DocumentException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures saving and loading a game on synthetic levels of different sizes, and loading a
+ * recording of different lengths, in each save format. The files are written to res/saves and
+ * res/recordings under a slot no menu uses, and deleted afterwards, so run it from the project
+ * root.
+ *
+ * @author Benjamin Hong - 300605520
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PersistencyBenchmark {
+
+  /**
+   * Slot the benchmark saves to, well away from the slots of the load menu.
+   */
+  private static final int SLOT = 900;
+
+  @Param({"10", "100", "500"})
+  public int size;
+
+  @Param({"BINARY", "XML"})
+  public SaveFormat format;
+
+  @Param({"1000"})
+  public int moves;
+
+  private Domain domain;
+
+  /**
+   * makes the game to save, and writes a save and a recording to load.
+   *
+   * @throws IOException if the files cannot be written
+   */
+  @Setup
+  public void setup() throws IOException {
+    domain = SyntheticLevels.domain(size, false);
+    DomainPersistency.save(domain, SLOT, format);
+    RecorderPersistency.saveTimeline(SyntheticLevels.recording(moves), SLOT, format);
+  }
+
+  /**
+   * deletes the files written by the benchmark.
+   *
+   * @throws IOException if the save cannot be deleted
+   */
+  @TearDown
+  public void tearDown() throws IOException {
+    DomainPersistency.delete(SLOT);
+    RecorderPersistency.delete(SLOT);
+  }
+
+  /**
+   * saves the game.
+   *
+   * @throws IOException if the save cannot be written
+   */
+  @Benchmark
+  public void save() throws IOException {
+    DomainPersistency.save(domain, SLOT, format);
+  }
+
+  /**
+   * loads the saved game.
+   *
+   * @return the loaded game
+   * @throws DocumentException if the save cannot be read
+   */
+  @Benchmark
+  public Domain loadSave() throws DocumentException {
+    return DomainPersistency.loadSave(SLOT);
+  }
+
+  /**
+   * loads the saved recording.
+   *
+   * @return the loaded recording
+   * @throws DocumentException if the recording cannot be read
+   */
+  @Benchmark
+  public Stack<Pair<Long, Actions>> loadTimeline() throws DocumentException {
+    return RecorderPersistency.loadTimeline(SLOT);
+  }
+}
@@ -0,0 +1,146 @@
+package nz.ac.vuw.ecs.swen225.gp6.bench;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Stack;
+import java.util.function.BiConsumer;
+import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Actions;
+import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Pair;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Domain;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Inventory;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Maze;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.Tile;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.TileInfo;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.TileType;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.Hero;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Utility.Loc;
+
+/**
+ * Makes square levels of any size for the benchmarks, from 10x10 up to 2000x2000. The levels are
+ * made from a fixed seed, so the same size always gives the same level.
+ *
+ * @author Name: Mahdi Najafi ID: 300606634
+ */
+public final class SyntheticLevels {
+
+  /**
+   * The level sizes the benchmarks run on by default.
+   */
+  public static final String[] SIZES = {"10", "100", "500", "1000", "2000"};
+
+  private SyntheticLevels() {
+  }
+
+  /**
+   * makes a square maze with walls around the edge, a hero in the middle with floors around it, a
+   * coin and an exit door in the corners, and coins, keys, locks, info tiles and walls scattered
+   * over the floor.
+   *
+   * @param size width and height of the maze (at least 5)
+   * @return a new maze, holding a tile object for every cell
+   * @throws IllegalArgumentException if size is less than 5
+   */
+  public static Maze maze(int size) {
+    if (size < 5) {
+      throw new IllegalArgumentException("a level must be at least 5x5 (SyntheticLevels.maze)");
+    }
+    Tile[][] tiles = new Tile[size][size];
+    fill(size, (loc, type) -> tiles[loc.x()][loc.y()] = tile(type, loc));
+    return new Maze(tiles);
+  }
+
+  /**
+   * makes the same maze as {@link #maze(int)}, packed into one byte per terrain cell.
+   *
+   * @param size width and height of the maze (at least 5)
+   * @return a new packed maze
+   * @throws IllegalArgumentException if size is less than 5
+   */
+  public static Maze packedMaze(int size) {
+    if (size < 5) {
+      throw new IllegalArgumentException("a level must be at least 5x5 (SyntheticLevels.maze)");
+    }
+    Maze maze = Maze.packed(size, size);
+    fill(size, (loc, type) -> {
+      if (type != TileType.Floor) {
+        maze.setTileAt(loc, tile(type, loc));
+      }
+    });
+    return maze;
+  }
+
+  /**
+   * makes a one level game on a synthetic maze.
+   *
+   * @param size   width and height of the maze (at least 5)
+   * @param packed true to pack the maze into one byte per terrain cell
+   * @return a new game
+   */
+  public static Domain domain(int size, boolean packed) {
+    return new Domain(List.of(packed ? packedMaze(size) : maze(size)), new Inventory(8), 1);
+  }
+
+  /**
+   * makes a recording of the hero moving around, one move every tick.
+   *
+   * @param moves number of moves in the recording
+   * @return a new recording, in the order the moves were made
+   */
+  public static Stack<Pair<Long, Actions>> recording(int moves) {
+    Actions[] dirs = {Actions.MOVE_UP, Actions.MOVE_RIGHT, Actions.MOVE_DOWN, Actions.MOVE_LEFT};
+    Stack<Pair<Long, Actions>> timeline = new Stack<Pair<Long, Actions>>();
+    for (int i = 0; i < moves; i++) {
+      timeline.add(new Pair<Long, Actions>(i * 34_000_000L, dirs[i % dirs.length]));
+    }
+    return timeline;
+  }
+
+  /**
+   * decides the tile type of every cell of a maze, and gives each to the given consumer.
+   *
+   * @param size   width and height of the maze
+   * @param placer consumer of the location and type of every cell
+   */
+  private static void fill(int size, BiConsumer<Loc, TileType> placer) {
+    Random random = new Random(size);
+    TileType[] scattered = {TileType.Coin, TileType.Wall, TileType.BlueKey, TileType.BlueLock,
+        TileType.GreenKey, TileType.GreenLock, TileType.Info};
+    int mid = size / 2;
+
+    for (int x = 0; x < size; x++) {
+      for (int y = 0; y < size; y++) {
+        TileType type = TileType.Floor;
+        if (x == 0 || y == 0 || x == size - 1 || y == size - 1) {
+          type = TileType.Wall;
+        } else if (x == mid && y == mid) {
+          type = TileType.Hero;
+        } else if (x == 1 && y == 1) {
+          type = TileType.Coin;
+        } else if (x == size - 2 && y == size - 2) {
+          type = TileType.ExitDoor;
+        } else if (Math.abs(x - mid) > 1 && random.nextInt(10) == 0) {
+          type = scattered[random.nextInt(scattered.length)];
+        }
+        placer.accept(new Loc(x, y), type);
+      }
+    }
+  }
+
+  /**
+   * makes a tile of the given type at the given location.
+   *
+   * @param type tile type
+   * @param loc  location of the tile
+   * @return a new tile
+   */
+  private static Tile tile(TileType type, Loc loc) {
+    if (type == TileType.Info) {
+      return TileType.makeTile(type, new TileInfo(loc, 0, "", "hint"));
+    }
+    Tile tile = TileType.makeTile(type, new TileInfo(loc));
+    if (tile instanceof Hero hero) {
+      hero.setTileOn(TileType.makeTile(TileType.Floor, new TileInfo(new Loc(loc.x(), loc.y()))));
+    }
+    return tile;
+  }
+}
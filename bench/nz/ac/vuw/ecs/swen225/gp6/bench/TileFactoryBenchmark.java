@@ -0,0 +1,119 @@
+package nz.ac.vuw.ecs.swen225.gp6.bench;
+
+import java.util.concurrent.TimeUnit;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Maze;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.Tile;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.TileInfo;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.TileType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares making and copying every tile of a maze through the tile type constructor registry,
+ * against the reflective lookups that were used before it (kept here as the baseline).
+ *
+ * @author Name: Mahdi Najafi ID: 300606634
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TileFactoryBenchmark {
+
+  @Param({"200"})
+  public int size;
+
+  private Maze maze;
+  private TileType[][] types;
+
+  /**
+   * makes the maze to copy, and the types of its tiles to make again.
+   */
+  @Setup
+  public void setup() {
+    maze = SyntheticLevels.maze(size);
+    types = new TileType[size][size];
+    for (int x = 0; x < size; x++) {
+      for (int y = 0; y < size; y++) {
+        types[x][y] = maze.getTileAt(x, y).type();
+      }
+    }
+  }
+
+  //MAKING TILES:
+
+  /**
+   * makes every tile of the maze from its type through the registry.
+   *
+   * @return the made tiles
+   */
+  @Benchmark
+  public Tile[][] makeTilesRegistry() {
+    Tile[][] made = new Tile[size][size];
+    for (int x = 0; x < size; x++) {
+      for (int y = 0; y < size; y++) {
+        made[x][y] = TileType.makeTile(types[x][y], new TileInfo(null));
+      }
+    }
+    return made;
+  }
+
+  /**
+   * makes every tile of the maze from its type by looking up its class by name.
+   *
+   * @return the made tiles
+   */
+  @Benchmark
+  public Tile[][] makeTilesReflective() throws ReflectiveOperationException {
+    Tile[][] made = new Tile[size][size];
+    for (int x = 0; x < size; x++) {
+      for (int y = 0; y < size; y++) {
+        Class<?> c =
+            Class.forName("nz.ac.vuw.ecs.swen225.gp6.domain.Tiles." + types[x][y].name());
+        made[x][y] = (Tile) c.getDeclaredConstructor(TileInfo.class)
+            .newInstance(new TileInfo(null));
+      }
+    }
+    return made;
+  }
+
+  //COPYING TILES:
+
+  /**
+   * copies the maze's tile array through the registry.
+   *
+   * @return the copied tiles
+   */
+  @Benchmark
+  public Tile[][] copyMazeRegistry() {
+    return maze.getTileArrayCopy();
+  }
+
+  /**
+   * copies the maze's tile array by looking up each tile's constructor.
+   *
+   * @return the copied tiles
+   */
+  @Benchmark
+  public Tile[][] copyMazeReflective() throws ReflectiveOperationException {
+    Tile[][] copy = new Tile[size][size];
+    for (int x = 0; x < size; x++) {
+      for (int y = 0; y < size; y++) {
+        Tile t = maze.getTileAt(x, y);
+        copy[x][y] = t.getClass().getConstructor(TileInfo.class).newInstance(t.info());
+      }
+    }
+    return copy;
+  }
+}
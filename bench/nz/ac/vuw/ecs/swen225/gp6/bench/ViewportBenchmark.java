@@ -0,0 +1,72 @@
+package nz.ac.vuw.ecs.swen225.gp6.bench;
+
+import java.util.concurrent.TimeUnit;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Domain;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.Tile;
+import nz.ac.vuw.ecs.swen225.gp6.renderer.RenderSnapshot;
+import nz.ac.vuw.ecs.swen225.gp6.renderer.Viewport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures cutting out the part of the maze the renderer draws, on synthetic levels of different
+ * sizes: from a tile array that is already copied, and the snapshot the game takes for a frame.
+ *
+ * @author Loki
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ViewportBenchmark {
+
+  @Param({"10", "100", "500", "1000", "2000"})
+  public int size;
+
+  @Param({"7"})
+  public int renderSize;
+
+  private Domain domain;
+  private Tile[][] gameArray;
+
+  /**
+   * makes the game to draw, and a copy of its tiles.
+   */
+  @Setup
+  public void setup() {
+    domain = SyntheticLevels.domain(size, false);
+    gameArray = domain.getGameArray();
+  }
+
+  /**
+   * gets the viewport from a copied tile array, finding the hero by scanning it.
+   *
+   * @return the viewport
+   */
+  @Benchmark
+  public Tile[][] getViewport() {
+    return Viewport.getViewport(gameArray, renderSize);
+  }
+
+  /**
+   * takes what the renderer draws for a frame the way the game does after each tick: a snapshot
+   * of the tiles in view, read straight from the maze with {@code Maze.visitWindow}.
+   *
+   * @return the snapshot
+   */
+  @Benchmark
+  public RenderSnapshot getViewportFrame() {
+    return RenderSnapshot.of(domain, 0, renderSize);
+  }
+}
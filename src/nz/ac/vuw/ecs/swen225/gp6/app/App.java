@@ -72,6 +72,9 @@ public class App {
   private void initialiseCommands() {
     LogPanel logPanel = GUI.getLogPanel();
     logPanel.addCommands("nextLvl", "Jump to the next level", this::runWinEvent);
+    logPanel.addCommands("lateness", "Show how late the game is pinged", () ->
+        System.out.printf("Pings run %.1f ms late, %d dropped%n",
+            gameClock.getTickLateness() / 1_000_000.0, gameClock.getDroppedTicks()));
     logPanel.addCommands("win", "Win the game", () -> {
       gameClock.stop();
       inResume = false;
@@ -136,6 +139,7 @@ public class App {
    */
   public void startNewGame() {
     updateGameComponents(DomainPersistency.getInitial());
+    recorder.startRecording();
     gameClock.useGameTimer();
     transitionToGameScreen();
   }
@@ -172,19 +176,32 @@ public class App {
     System.out.println("Complete");
   }
 
+  /**
+   * Puts a game in place of the replayed game, e.g. when the replay seeks to another time. The
+   * clock is stopped and set to the time played.
+   *
+   * @param game       the game to replay from, it must not have any event listeners
+   * @param timePlayed the game time played in its current level, in nanoseconds
+   */
+  public void restoreReplayGame(Domain game, long timePlayed) {
+    updateGameComponents(game);
+    gameClock.setTimePlayed(timePlayed);
+    gameClock.publish();
+  }
+
   /**
    * Updates the game components to the correct state.
    *
    * @param game the new game to be updated
    */
   private void updateGameComponents(Domain game) {
+    this.gameClock.stop(); // the game loop must be done with the old game
     this.game = game;
     this.gui.getRenderPanel().setMaze(game);
     this.gui.getInventory().setMaze(game);
-    this.game.addEventListener(DomainEvent.onWin, this::runWinEvent);
-    this.game.addEventListener(DomainEvent.onLose, this::runLoseEvent);
+    this.game.addEventListener(DomainEvent.onWin, () -> gameClock.fire(this::runWinEvent));
+    this.game.addEventListener(DomainEvent.onLose, () -> gameClock.fire(this::runLoseEvent));
     this.inResume = true;
-    this.recorder.startRecording();
     this.gameClock.reset();
   }
 
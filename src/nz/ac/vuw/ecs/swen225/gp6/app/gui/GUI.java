@@ -39,7 +39,6 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.swing.BorderFactory;
@@ -53,8 +52,11 @@ import javax.swing.SwingUtilities;
 import nz.ac.vuw.ecs.swen225.gp6.app.App;
 import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Actions;
 import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Controller;
+import nz.ac.vuw.ecs.swen225.gp6.app.utilities.GameClock;
 import nz.ac.vuw.ecs.swen225.gp6.domain.Domain;
 import nz.ac.vuw.ecs.swen225.gp6.persistency.DomainPersistency;
+import nz.ac.vuw.ecs.swen225.gp6.persistency.SaveService;
+import nz.ac.vuw.ecs.swen225.gp6.recorder.Record;
 import nz.ac.vuw.ecs.swen225.gp6.renderer.InventoryPanel;
 import nz.ac.vuw.ecs.swen225.gp6.renderer.LogPanel;
 import nz.ac.vuw.ecs.swen225.gp6.renderer.MazeRenderer;
@@ -83,6 +85,7 @@ public class GUI extends JFrame {
   private final JPanel gamePanel = createClearPanel(BoxLayout.Y_AXIS);
   private final JPanel pausePanel = createClearPanel(BoxLayout.Y_AXIS);
   private final JPanel functionPanel = createClearPanel(BoxLayout.Y_AXIS);
+  private final JPanel statusPanel = createClearPanel(BoxLayout.Y_AXIS);
   private final CardLayout outerCardLayout = new CardLayout();
   private final CardLayout menuCardLayout = new CardLayout();
   private final CardLayout gameCardLayout = new CardLayout();
@@ -231,6 +234,14 @@ public class GUI extends JFrame {
         Box.createVerticalGlue(),
         pnLoadGame,
         Box.createVerticalGlue(),
+        createActionLabel("Replay last session", renderPanel, SUBTITLE, true, () -> {
+          // the recording of a session that ended without being saved, e.g. the game crashed
+          if (Record.hasRecoveredRecording()) {
+            app.startSavedReplay(Record.RECOVERED_SLOT);
+          } else {
+            JOptionPane.showMessageDialog(null, "There is no unsaved session to replay!");
+          }
+        }),
         createActionLabel("Return to menu", renderPanel, SUBTITLE, true,
             this::transitionToMenuScreen));
 
@@ -296,18 +307,20 @@ public class GUI extends JFrame {
       addAll(pnOptions,
           Box.createHorizontalGlue(),
           createActionLabel("Save here!", renderPanel, SUBTITLE, true, () -> {
-            try {
-              app.getGame().setCurrentTime(app.getGameClock().getTimePlayed());
-              DomainPersistency.save(app.getGame(), slot);
-              app.getRecorder().saveRecording(slot);
-              app.refreshSaves();
-              this.repaint();
-            } catch (IOException e) {
-              System.out.println("Failed to save game in slot: " + slot);
-              e.printStackTrace();
-              JOptionPane.showMessageDialog(null,
-                  "There is an error in saving the game slot: " + slot);
-            }
+            app.getGame().setCurrentTime(app.getGameClock().getTimePlayed());
+            // the game is written in the background, the menu is updated once it's saved
+            SaveService.INSTANCE.save(app.getGame(), slot, e -> SwingUtilities.invokeLater(() -> {
+              if (e == null) {
+                app.refreshSaves();
+                this.repaint();
+              } else {
+                System.out.println("Failed to save game in slot: " + slot);
+                e.printStackTrace();
+                JOptionPane.showMessageDialog(null,
+                    "There is an error in saving the game slot: " + slot);
+              }
+            }));
+            app.getRecorder().saveRecording(slot);
           }),
           Box.createHorizontalGlue());
     } else {  // Options for Loading
@@ -497,7 +510,7 @@ public class GUI extends JFrame {
     final JPanel pnGame = createRepeatableBackgroundPanel(Images.Pattern, renderPanel,
         BoxLayout.X_AXIS);
     // 3 panels on top of outermost panel: left/mid/right
-    final JPanel pnStatus = createClearPanel(BoxLayout.Y_AXIS);
+    final JPanel pnStatus = statusPanel;
     final JPanel pnMaze = createClearPanel(new GridBagLayout());
     final JPanel pnRight = createClearPanel(BoxLayout.Y_AXIS);
     // inner panels for panels: left/mid/right
@@ -553,18 +566,22 @@ public class GUI extends JFrame {
         createActionLabel("Menu", renderPanel, TEXT, true, () -> Actions.QUIT_TO_MENU.run(app)),
         createActionLabel("Pause", renderPanel, TEXT, true, () -> app.getReplay().stopReplay()),
         createActionLabel("Auto", renderPanel, TEXT, true, () -> app.getReplay().autoPlay()),
+        createActionLabel("Back", renderPanel, TEXT, true, () -> app.getReplay().stepBack()),
         createActionLabel("Step", renderPanel, TEXT, true, () -> app.getReplay().step()),
         replaySpeed);
 
     addAll(pnStatusTop,
         createLabel("Level", renderPanel, SUBTITLE, false),
-        createInfoLabel(() -> app.getGame().getCurrentLevel() + "", renderPanel, SUBTITLE, false));
+        createInfoLabel(() -> renderPanel.getSnapshot().level() + "", renderPanel, SUBTITLE,
+            false));
     addAll(pnStatusMid,
         createLabel("Time", renderPanel, SUBTITLE, false),
-        createInfoLabel(app.getGameClock()::getTimeInMinutes, renderPanel, SUBTITLE, false));
+        createInfoLabel(() -> GameClock.formatTime(renderPanel.getSnapshot().timeLeft()),
+            renderPanel, SUBTITLE, false));
     addAll(pnStatusBot,
         createLabel("Treasures", renderPanel, SUBTITLE, false),
-        createInfoLabel(() -> app.getGame().getTreasuresLeft() + "", renderPanel, SUBTITLE, false));
+        createInfoLabel(() -> renderPanel.getSnapshot().treasuresLeft() + "", renderPanel,
+            SUBTITLE, false));
     addAll(pnInventory,
         createLabel("Inventory", renderPanel, SUBTITLE, false), inventoryPanel);
     addAll(pnStatus, Box.createVerticalGlue(), pnStatusTop, Box.createVerticalGlue(), pnStatusMid,
@@ -666,6 +683,15 @@ public class GUI extends JFrame {
     return renderPanel;
   }
 
+  /**
+   * Gets the panel showing the level, time and treasures left of the game being played.
+   *
+   * @return the status panel
+   */
+  public JPanel getStatusPanel() {
+    return statusPanel;
+  }
+
   /**
    * Gets the Inventory Renderer of this GUI.
    *
@@ -1,6 +1,7 @@
 package nz.ac.vuw.ecs.swen225.gp6.app.utilities;
 
 import nz.ac.vuw.ecs.swen225.gp6.app.App;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Domain;
 import nz.ac.vuw.ecs.swen225.gp6.renderer.MusicPlayer;
 
 /**
@@ -18,13 +19,12 @@ public enum Actions {
       if (!app.isResuming()) {
         return;
       }
-      app.getGame().moveUp();
-      app.getRecorder().addActions(app.getGameClock().getTimePlayed(), this);
+      move(app);
     }
 
     @Override
-    public void replay(App app) {
-      app.getGame().moveUp();
+    public void apply(Domain game) {
+      game.moveUp();
     }
   },
 
@@ -37,13 +37,12 @@ public enum Actions {
       if (!app.isResuming()) {
         return;
       }
-      app.getGame().moveDown();
-      app.getRecorder().addActions(app.getGameClock().getTimePlayed(), this);
+      move(app);
     }
 
     @Override
-    public void replay(App app) {
-      app.getGame().moveDown();
+    public void apply(Domain game) {
+      game.moveDown();
     }
   },
 
@@ -56,13 +55,12 @@ public enum Actions {
       if (!app.isResuming()) {
         return;
       }
-      app.getGame().moveLeft();
-      app.getRecorder().addActions(app.getGameClock().getTimePlayed(), this);
+      move(app);
     }
 
     @Override
-    public void replay(App app) {
-      app.getGame().moveLeft();
+    public void apply(Domain game) {
+      game.moveLeft();
     }
   },
 
@@ -75,13 +73,12 @@ public enum Actions {
       if (!app.isResuming()) {
         return;
       }
-      app.getGame().moveRight();
-      app.getRecorder().addActions(app.getGameClock().getTimePlayed(), this);
+      move(app);
     }
 
     @Override
-    public void replay(App app) {
-      app.getGame().moveRight();
+    public void apply(Domain game) {
+      game.moveRight();
     }
   },
 
@@ -127,7 +124,7 @@ public enum Actions {
     public void run(App app) {
       System.out.println("Jump to Level 1");
       app.startNewGame();
-      app.getGame().setCurrentLevel(1);
+      app.getGameClock().perform(() -> app.getGame().setCurrentLevel(1));
     }
   },
 
@@ -139,7 +136,7 @@ public enum Actions {
     public void run(App app) {
       System.out.println("Jump to Level 2");
       app.startNewGame();
-      app.getGame().setCurrentLevel(2);
+      app.getGameClock().perform(() -> app.getGame().setCurrentLevel(2));
     }
   },
 
@@ -202,12 +199,35 @@ public enum Actions {
   public void run(App app) {
   }
 
+  /**
+   * Performs the move on the game, on the thread that owns the game (see
+   * {@link GameClock#perform(Runnable)}), and records it with the tick it was performed on.
+   *
+   * @param app The app object that the move will be performed on.
+   */
+  void move(App app) {
+    app.getGameClock().perform(() -> {
+      apply(app.getGame());
+      app.getRecorder().addActions(app.getGame().getTick(), this);
+    });
+  }
+
   /**
    * Replays the action associated with the enum.
    *
    * @param app The app object that the action will be performed on.
    */
   public void replay(App app) {
+    apply(app.getGame());
+  }
+
+  /**
+   * Applies the action's effect on the game itself, without the app. Only the moves affect the
+   * game, every other action does nothing.
+   *
+   * @param game The game that the action will be performed on.
+   */
+  public void apply(Domain game) {
   }
 
   /**
@@ -40,10 +40,24 @@ import nz.ac.vuw.ecs.swen225.gp6.renderer.MazeRenderer;
  */
 public class Configuration {
 
+  /**
+   * The default number of times a second the game is pinged, one ping every
+   * {@link HeadlessRunner#TICK_NANOS}.
+   */
+  public static final double DEFAULT_TICK_RATE = 1_000_000_000.0 / HeadlessRunner.TICK_NANOS;
+
+  /**
+   * The most times a second the game can be pinged, {@value FixedStep#MAX_CATCH_UP} times the
+   * default. The game loop catches up at most that many pings in a frame after a stall, so a
+   * faster game would fall behind for good.
+   */
+  public static final double MAX_TICK_RATE = FixedStep.MAX_CATCH_UP * DEFAULT_TICK_RATE;
+
   private final EnumMap<Actions, Key> userKeyBindings;
   private boolean isMusicOn;
   private String texturePack;
   private int viewDistance;
+  private double tickRate = DEFAULT_TICK_RATE;
 
   /**
    * Constructor for the Configuration class.
@@ -108,6 +122,7 @@ public class Configuration {
     MazeRenderer renderer = app.getGUI().getRenderPanel();
     renderer.setRenderSize(viewDistance);
     renderer.setTexturePack(texturePack);
+    app.getGameClock().setTickRate(tickRate);
   }
 
   /**
@@ -190,11 +205,39 @@ public class Configuration {
     return viewDistance;
   }
 
+  /**
+   * Gets the number of times a second the game is pinged, the speed of the game.
+   *
+   * @return the tick rate
+   */
+  public double getTickRate() {
+    return tickRate;
+  }
+
+  /**
+   * Sets the number of times a second the game is pinged. This is the speed of the game, not a
+   * finer simulation step: the game time of each ping stays the same, so the game runs faster or
+   * slower.
+   *
+   * @param tickRate the tick rate, more than 0 and at most {@link #MAX_TICK_RATE}
+   */
+  public void setTickRate(double tickRate) {
+    if (!(tickRate > 0)) {
+      throw new IllegalArgumentException("Tick rate must be more than 0: " + tickRate);
+    }
+    if (tickRate > MAX_TICK_RATE) {
+      throw new IllegalArgumentException("Tick rate must be at most " + MAX_TICK_RATE + ": "
+          + tickRate);
+    }
+    this.tickRate = tickRate;
+  }
+
   @Override
   public String toString() {
     return String.format(
-        "Configuration{ isMusicOn=%s, texturePack=%s, viewDistance=%d, userKeyBindings=%s }",
-        isMusicOn, texturePack, viewDistance, userKeyBindings);
+        "Configuration{ isMusicOn=%s, texturePack=%s, viewDistance=%d, tickRate=%s, "
+            + "userKeyBindings=%s }",
+        isMusicOn, texturePack, viewDistance, tickRate, userKeyBindings);
   }
 
   /**
@@ -0,0 +1,129 @@
+package nz.ac.vuw.ecs.swen225.gp6.app.utilities;
+
+/**
+ * This class turns the wall clock time that passes between the frames of a loop into a whole
+ * number of fixed length ticks. The time left over from a frame is kept for the next one, so the
+ * ticks keep to the wall clock however late or uneven the frames are, rather than drifting by the
+ * time each frame is late.
+ *
+ * <p>After a stall (e.g. the machine is busy or the thread was paused), the ticks missed are
+ * caught up a few at a time, at most {@link #MAX_CATCH_UP} in one frame. Time owed past that is
+ * dropped rather than run in one long burst, so a long stall slows the game down instead of
+ * freezing it while it catches up. As game time only moves on with the ticks, dropped time never
+ * counts against the time limit of a level.</p>
+ *
+ * @author Jeff Lin
+ */
+public final class FixedStep {
+
+  /**
+   * The most ticks run in one frame to catch up after a stall.
+   */
+  public static final int MAX_CATCH_UP = 8;
+
+  private final long tickNanos; // wall clock length of a tick at normal speed
+  private volatile double speed = 1; // how many times faster than normal the ticks run
+  private long last; // the wall clock time of the last frame
+  private long owed; // time passed but not yet ticked, times the speed
+  private volatile long lateness; // how late the first tick of the last frame ran
+  private volatile long dropped; // ticks dropped after stalls since the last restart
+
+  /**
+   * Constructor for the FixedStep class.
+   *
+   * @param tickNanos the length of a tick at normal speed, in nanoseconds
+   */
+  public FixedStep(long tickNanos) {
+    if (tickNanos <= 0) {
+      throw new IllegalArgumentException("Tick length must be positive");
+    }
+    this.tickNanos = tickNanos;
+  }
+
+  /**
+   * Starts counting time again from now, e.g. when the loop is started after a pause, so the time
+   * spent paused is not caught up.
+   *
+   * @param now the wall clock time, from {@link System#nanoTime()}
+   */
+  public void restart(long now) {
+    last = now;
+    owed = 0;
+    lateness = 0;
+    dropped = 0;
+  }
+
+  /**
+   * Counts the time passed since the last frame, and takes the ticks now due out of it.
+   *
+   * @param now the wall clock time, from {@link System#nanoTime()}
+   * @return the number of ticks to run in this frame, at most {@link #MAX_CATCH_UP}
+   */
+  public int advance(long now) {
+    owed += Math.round(Math.max(0, now - last) * speed);
+    last = now;
+    int ticks = (int) Math.min(owed / tickNanos, MAX_CATCH_UP);
+    owed -= ticks * tickNanos;
+    if (owed >= tickNanos) { // too far behind to catch up, the rest is dropped
+      dropped += owed / tickNanos;
+      owed %= tickNanos;
+    }
+    if (ticks > 0) {
+      // the first tick was due the longest ago, the last tick became due owed ago
+      lateness = Math.round((owed + (ticks - 1) * tickNanos) / speed);
+    }
+    return ticks;
+  }
+
+  /**
+   * Sets how many times faster than normal the ticks run, e.g. 2 runs two ticks in the time of
+   * one. The speed is exact over time, whatever the length of the frames: at 1.5, frames take
+   * turns running one and two ticks.
+   *
+   * @param speed the speed, more than 0
+   */
+  public void setSpeed(double speed) {
+    if (!(speed > 0)) {
+      throw new IllegalArgumentException("Speed must be positive");
+    }
+    this.speed = speed;
+  }
+
+  /**
+   * Gets how many times faster than normal the ticks run.
+   *
+   * @return the speed
+   */
+  public double getSpeed() {
+    return speed;
+  }
+
+  /**
+   * Gets the length of a tick at normal speed.
+   *
+   * @return the length of a tick in nanoseconds
+   */
+  public long getTickNanos() {
+    return tickNanos;
+  }
+
+  /**
+   * Gets how long after it was due the first tick of the last frame that ran any ran, in wall
+   * clock time. A frame that runs on time has a lateness of less than one tick.
+   *
+   * @return the lateness in nanoseconds
+   */
+  public long getLateness() {
+    return lateness;
+  }
+
+  /**
+   * Gets the number of ticks dropped after stalls since the last restart, because they were more
+   * than could be caught up.
+   *
+   * @return the number of ticks dropped
+   */
+  public long getDropped() {
+    return dropped;
+  }
+}
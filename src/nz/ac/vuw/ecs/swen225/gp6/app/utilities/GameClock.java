@@ -1,51 +1,66 @@
 package nz.ac.vuw.ecs.swen225.gp6.app.utilities;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 import nz.ac.vuw.ecs.swen225.gp6.app.App;
+import nz.ac.vuw.ecs.swen225.gp6.app.gui.GUI;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Domain;
+import nz.ac.vuw.ecs.swen225.gp6.renderer.RenderSnapshot;
 
 /**
  * This class is used to represent the timer for the game, it is also used to clock the time, and
  * define what happens with each ping during a game loop.
  *
+ * <p>While a game is played, it is pinged on a game loop thread of its own rather than the event
+ * dispatch thread, so a slow ping does not hold up input and painting, and a slow paint does not
+ * hold up the game. The game loop thread owns the game while the clock runs: moves are handed to
+ * it with {@link #perform(Runnable)}, the events of the game are handed back to the event dispatch
+ * thread with {@link #fire(Runnable)}, and after each ping it takes a snapshot of the game for
+ * the renderer to paint from (see {@link RenderSnapshot}). Once the clock is stopped the game
+ * belongs to the event dispatch thread again. A replay is still pinged on the event dispatch
+ * thread, as the replay controls step and seek the game there.</p>
+ *
  * @author Jeff Lin
  */
 public class GameClock {
 
-  private final int timeIntervalGame = 34; // time interval for each tick
-  private final int timeIntervalReplay = 34; // time interval for each tick
+  private final int frameIntervalReplay = 17; // time interval for each frame of a replay
   private App app;
   private Runnable replayObserver = () -> {
   }; // observer for the replay mode
-  private long timeStart = 0;  // starting time of current pause
-  private long timePlayed = 0; // total time played in a level
-  private float replaySpeed = 1; // speed of replay
-  private long timeLimit = 0; // time limit for the level
-  private final Timer gameTimer = new Timer(timeIntervalGame, unused -> {
-    assert SwingUtilities.isEventDispatchThread();
-    app.getGame().pingDomain();
-    long currentTime = System.nanoTime();
-    timePlayed += currentTime - timeStart;
-    if (timePlayed > timeLimit) {
-      app.runLoseEvent();
-    }
-    timeStart = currentTime;
-    app.getGUI().repaint();
-  });
+  private volatile long timePlayed = 0; // total time played in a level
+  private volatile long timeLimit = 0; // time limit for the level
+  private final ScheduledExecutorService gameLoop = Executors.newSingleThreadScheduledExecutor(
+      r -> {
+        Thread thread = new Thread(r, "game-loop");
+        thread.setDaemon(true);
+        return thread;
+      });
+  private ScheduledFuture<?> gameTimer; // the pings of the game loop, null when stopped
+  private long frameNanos = HeadlessRunner.TICK_NANOS; // the period of the frames of the game loop
+  private volatile boolean halted = false; // an event stopped the game until the clock restarts
+  // ticks due in each frame of the game loop and of the replay timer
+  private final FixedStep gameStep = new FixedStep(HeadlessRunner.TICK_NANOS);
+  private final FixedStep replayStep = new FixedStep(HeadlessRunner.TICK_NANOS);
 
-  private final Timer replayTimer = new Timer(timeIntervalReplay, unused -> {
+  // each frame of a replay runs the ticks due at its speed, and is painted once
+  private final Timer replayTimer = new Timer(frameIntervalReplay, unused -> {
     assert SwingUtilities.isEventDispatchThread();
-    app.getGame().pingDomain();
-    long currentTime = System.nanoTime();
-    timePlayed += (currentTime - timeStart) * replaySpeed;
-    if (timePlayed > timeLimit) {
-      app.runLoseEvent();
+    int ticks = replayStep.advance(System.nanoTime());
+    // the replay may stop the clock part way, e.g. when it is stepped one action at a time
+    for (int i = 0; i < ticks && replayTimer().isRunning(); i++) {
+      replayTick();
+    }
+    if (ticks > 0) {
+      publish();
     }
-    timeStart = currentTime;
-    replayObserver.run();
-    app.getGUI().repaint();
   });
-  private Timer timer = gameTimer;
+  private boolean replaying = false; // if the replay timer is used rather than the game loop
 
   /**
    * Constructor for the GameTimer class.
@@ -60,25 +75,162 @@ public class GameClock {
    * Starts the timer.
    */
   public void start() {
-    timeStart = System.nanoTime();
-    timer.start();
+    if (replaying) {
+      replayStep.restart(System.nanoTime());
+      replayTimer.start();
+    } else if (gameTimer == null) {
+      halted = false;
+      gameStep.restart(System.nanoTime());
+      gameTimer = gameLoop.scheduleAtFixedRate(this::frame, frameNanos, frameNanos,
+          TimeUnit.NANOSECONDS);
+    }
   }
 
   /**
-   * Stops the timer.
+   * Stops the timer. Once the game loop is stopped, this waits for the ping it is in the middle of
+   * and the moves handed to it, so the game can be used on this thread straight after.
    */
   public void stop() {
-    timer.stop();
+    replayTimer.stop();
+    if (gameTimer == null) {
+      return;
+    }
+    gameTimer.cancel(false);
+    gameTimer = null;
+    try {
+      gameLoop.submit(() -> {
+      }).get(); // runs after everything already handed to the game loop
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Game loop failed to stop", e.getCause());
+    }
   }
 
   /**
    * Resets the timer to the initial state.
    */
   public void reset() {
-    timer.stop();
+    stop();
     resetTime();
     timeLimit = app.getGame().getCurrentTimeLimit()
         * 1_000_000_000L; // converts time limit from seconds to nanoseconds
+    publish();
+  }
+
+  //==============================================================================================//
+  //==================================== Game Loop ===============================================//
+  //==============================================================================================//
+
+  /**
+   * Runs the ticks of the game due in a frame of the game loop, then shows the renderer the game
+   * after them.
+   */
+  private void frame() {
+    try {
+      int ticks = gameStep.advance(System.nanoTime());
+      for (int i = 0; i < ticks && !halted; i++) {
+        tick();
+      }
+      if (ticks > 0) {
+        publish();
+      }
+    } catch (RuntimeException e) { // thrown out of the loop it would stop every frame after it
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Pings the game once on the game loop thread. Each ping moves the game time on by a fixed step,
+   * so the time limit is counted in pings and runs out on the same ping however late they run.
+   */
+  private void tick() {
+    Domain game = app.getGame();
+    game.pingDomain();
+    app.getRecorder().checkpoint(game);
+    timePlayed += HeadlessRunner.TICK_NANOS;
+    if (timePlayed > timeLimit) {
+      fire(app::runLoseEvent);
+    }
+  }
+
+  /**
+   * Pings the replayed game once on the event dispatch thread. Like the game, each ping moves the
+   * game time on by a fixed step, whatever the speed, so a replay takes the same steps as
+   * HeadlessRunner and always gives the same result.
+   */
+  private void replayTick() {
+    replayObserver.run(); // inputs due before this ping
+    int level = app.getGame().getCurrentLevel();
+    app.getGame().pingDomain();
+    if (app.getGame().getCurrentLevel() == level) { // a new level starts its time from 0
+      timePlayed += HeadlessRunner.TICK_NANOS;
+      if (timePlayed > timeLimit) {
+        app.runLoseEvent();
+      }
+    }
+  }
+
+  /**
+   * Gets the replay timer, for its own action to check it is still running.
+   *
+   * @return the replay timer
+   */
+  private Timer replayTimer() {
+    return replayTimer;
+  }
+
+  /**
+   * Does something to the game on the thread that owns it: the game loop thread while the game is
+   * played, this thread otherwise. Things handed to the game loop are done in order, between
+   * pings.
+   *
+   * @param task what to do to the game
+   */
+  public void perform(Runnable task) {
+    if (gameTimer == null) {
+      task.run();
+      return;
+    }
+    gameLoop.execute(() -> {
+      if (!halted) {
+        task.run();
+      }
+    });
+  }
+
+  /**
+   * Runs an event of the game (e.g. the level is won) on the event dispatch thread. If it happens
+   * on the game loop thread, the game is not pinged again until the clock is started again, as the
+   * event may end the level.
+   *
+   * @param event what to do about the event
+   */
+  public void fire(Runnable event) {
+    if (SwingUtilities.isEventDispatchThread()) {
+      event.run();
+      return;
+    }
+    halted = true;
+    SwingUtilities.invokeLater(event);
+  }
+
+  /**
+   * Takes a snapshot of the game for the renderer, and repaints the parts of the GUI that show
+   * something different than before. Must be called on the thread that owns the game.
+   */
+  public void publish() {
+    GUI gui = app.getGUI();
+    RenderSnapshot last = gui.getRenderPanel().getSnapshot();
+    RenderSnapshot frame = RenderSnapshot.of(app.getGame(), getTimeLeft(),
+        gui.getRenderPanel().getRenderSize());
+    gui.getRenderPanel().show(frame); // repaints the tiles that changed
+    gui.getInventory().show(frame); // repaints if the inventory changed
+    // the time is shown to the hundredth of a second
+    if (frame.level() != last.level() || frame.treasuresLeft() != last.treasuresLeft()
+        || frame.timeLeft() / 10_000_000 != last.timeLeft() / 10_000_000) {
+      gui.getStatusPanel().repaint();
+    }
   }
 
   //==============================================================================================//
@@ -95,20 +247,33 @@ public class GameClock {
   }
 
   /**
-   * Sets the delay between pings for the replay timer.
+   * Sets how many pings of the replay are run in each frame. The game time of each ping stays the
+   * same, so the replay plays faster or slower but takes the same steps. The speed is exact: at
+   * 1.5, three pings are run in the time the game takes to run two.
    *
-   * @param speed the delay in milliseconds
+   * @param speed how many times faster than the game to replay
    */
   public void setReplaySpeed(float speed) {
-    this.replayTimer.setDelay((int) (timeIntervalReplay / speed));
-    this.replaySpeed = speed;
+    this.replayStep.setSpeed(speed);
+  }
+
+  /**
+   * Sets how many times a second the game is pinged. This is the speed of the game, not a finer
+   * step: the game time of each ping stays the same, so the game, and its time limit, run faster
+   * or slower. The game loop runs a frame for each ping, so they stay evenly spaced. It takes
+   * effect the next time the clock is started.
+   *
+   * @param ticksPerSecond the number of pings a second, see {@link Configuration#setTickRate}
+   */
+  public void setTickRate(double ticksPerSecond) {
+    this.gameStep.setSpeed(ticksPerSecond * HeadlessRunner.TICK_NANOS / 1_000_000_000.0);
+    this.frameNanos = Math.round(1_000_000_000.0 / ticksPerSecond);
   }
 
   /**
    * Resets the time left for the current level.
    */
   public void resetTime() {
-    timeStart = System.nanoTime();
     timePlayed = 0;
   }
 
@@ -120,14 +285,14 @@ public class GameClock {
    * Sets the timer used for the game loop.
    */
   public void useGameTimer() {
-    this.timer = gameTimer;
+    this.replaying = false;
   }
 
   /**
    * Sets the timer used for the replay loop.
    */
   public void useReplayTimer() {
-    this.timer = replayTimer;
+    this.replaying = true;
   }
 
   /**
@@ -152,6 +317,26 @@ public class GameClock {
   //=================================== Getter Method ============================================//
   //==============================================================================================//
 
+  /**
+   * Gets how late the pings of the clock in use run: how long after it was due the first ping of
+   * the last frame that had any was run, in wall clock time.
+   *
+   * @return the lateness in nanoseconds
+   */
+  public long getTickLateness() {
+    return (replaying ? replayStep : gameStep).getLateness();
+  }
+
+  /**
+   * Gets the number of pings the clock in use has dropped since it was started, as they were
+   * more than could be caught up after a stall.
+   *
+   * @return the number of pings dropped
+   */
+  public long getDroppedTicks() {
+    return (replaying ? replayStep : gameStep).getDropped();
+  }
+
   /**
    * Gets the time left for the current level.
    *
@@ -167,7 +352,16 @@ public class GameClock {
    * @return the time elapsed since the start of the game
    */
   public String getTimeInMinutes() {
-    long time = getTimeLeft();
+    return formatTime(getTimeLeft());
+  }
+
+  /**
+   * Formats a time in Minutes, Seconds and hundredths of a second.
+   *
+   * @param time the time in nanoseconds
+   * @return the formatted time
+   */
+  public static String formatTime(long time) {
     long millis = time / 1000000 % 1000 / 10;
     long seconds = time / 1000000000;
     long minutes = seconds / 60;
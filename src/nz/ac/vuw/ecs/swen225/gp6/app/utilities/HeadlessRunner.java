@@ -0,0 +1,243 @@
+package nz.ac.vuw.ecs.swen225.gp6.app.utilities;
+
+import java.util.ArrayList;
+import java.util.List;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Domain;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Domain.DomainEvent;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Domain.GameState;
+import nz.ac.vuw.ecs.swen225.gp6.persistency.DomainPersistency;
+import nz.ac.vuw.ecs.swen225.gp6.persistency.RecorderPersistency;
+import nz.ac.vuw.ecs.swen225.gp6.recorder.datastructures.RecordTimeline;
+import nz.ac.vuw.ecs.swen225.gp6.recorder.datastructures.ReplayTimeline;
+import org.dom4j.DocumentException;
+
+/**
+ * This class is used to run a game without the GUI or the Swing timers, as fast as the CPU allows.
+ * Each tick follows the same steps as a tick of the replay timer in GameClock: the inputs due are
+ * applied, the game is pinged, and the game time moves on by a fixed step. Inputs are stamped with
+ * the tick they were done on, so a run always gives the same result as the game it was recorded
+ * from.
+ *
+ * @author Jeff Lin
+ */
+public class HeadlessRunner {
+
+  /**
+   * Game time each tick moves on by, the same as the interval of GameClock's timers.
+   */
+  public static final long TICK_NANOS = 34_000_000L;
+
+  private final Domain game;
+  private final boolean byTick; // inputs are stamped with ticks rather than game times
+  private long timePlayed = 0; // game time played in the current level
+  private long timeLimit; // time limit for the current level
+
+  /**
+   * Constructor for the HeadlessRunner class.
+   *
+   * @param game The game to run, it moves to the next level when a level is won.
+   */
+  public HeadlessRunner(Domain game) {
+    this(game, 0, true);
+  }
+
+  /**
+   * Constructor for the HeadlessRunner class, for a game part way through its current level (e.g.
+   * a keyframe of a replay).
+   *
+   * @param game       The game to run, it moves to the next level when a level is won.
+   * @param timePlayed The game time already played in the current level, in nanoseconds.
+   * @param byTick     True if the inputs are stamped with the tick they were done on, false if
+   *                   with the game time (recordings made before ticks were counted).
+   */
+  public HeadlessRunner(Domain game, long timePlayed, boolean byTick) {
+    if (game == null) {
+      throw new IllegalArgumentException("Game cannot be null");
+    }
+    this.game = game;
+    this.byTick = byTick;
+    this.game.addEventListener(DomainEvent.onWin, () -> {
+      if (this.game.nextLvl()) {
+        resetTime();
+      }
+    });
+    resetTime();
+    this.timePlayed = timePlayed;
+  }
+
+  /**
+   * Runs the game for a number of ticks with no input, or until it is won or lost.
+   *
+   * @param ticks the most ticks to run
+   * @return the result of the run
+   */
+  public Result run(int ticks) {
+    return run(ticks, List.of());
+  }
+
+  /**
+   * Runs the game for a number of ticks, or until it is won or lost. The inputs are applied just
+   * before the ping of the tick after the one they are stamped with, as a replay does.
+   *
+   * @param ticks  the most ticks to run
+   * @param inputs the actions to apply, with the tick they were done on, in the order they were
+   *               recorded
+   * @return the result of the run
+   */
+  public Result run(int ticks, List<Pair<Long, Actions>> inputs) {
+    if (ticks < 0 || inputs == null) {
+      throw new IllegalArgumentException("Ticks must not be negative, and inputs cannot be null");
+    }
+
+    ReplayTimeline<Actions> timeline =
+        new ReplayTimeline<>(new RecordTimeline<>(Actions.class, inputs));
+    int tick = 0;
+    long start = System.nanoTime();
+    while (tick < ticks && !isFinished()) {
+      tick(timeline);
+      tick++;
+    }
+    long nanos = System.nanoTime() - start;
+
+    game.setCurrentTime(timePlayed);
+    return new Result(tick, game.getGameState(), game.getCurrentLevel(), timeline.position(),
+        nanos);
+  }
+
+  /**
+   * Runs one tick of the game: applies the inputs due, pings it, and moves the game time on. Does
+   * nothing once the game is won or lost.
+   *
+   * @param inputs the actions to apply, the cursor is moved past the inputs applied
+   */
+  public void tick(ReplayTimeline<Actions> inputs) {
+    if (isFinished()) {
+      return;
+    }
+    while (isDue(inputs, byTick, game.getTick(), timePlayed)) {
+      inputs.next().apply(game);
+      if (!byTick) {
+        break; // inputs stamped with times are applied at most one per tick
+      }
+    }
+    int level = game.getCurrentLevel();
+    game.pingDomain();
+    if (isFinished() || game.getCurrentLevel() != level) {
+      return; // a new level starts its time from 0
+    }
+    timePlayed += TICK_NANOS;
+    if (timePlayed > timeLimit) {
+      game.setGameState(GameState.LOST);
+    }
+  }
+
+  /**
+   * Checks if the next input is due, to be applied before the next ping.
+   *
+   * @param inputs     the actions to apply
+   * @param byTick     true if the inputs are stamped with ticks, false if with game times
+   * @param tick       the number of pings done so far (see {@link Domain#getTick()})
+   * @param timePlayed the game time played in the current level
+   * @return true if there is a next input and it is due
+   */
+  public static boolean isDue(ReplayTimeline<Actions> inputs, boolean byTick, long tick,
+      long timePlayed) {
+    return inputs.hasNext() && inputs.peekTime() <= (byTick ? tick : timePlayed);
+  }
+
+  /**
+   * Checks if the next input is due, to be applied on the next tick.
+   *
+   * @param inputs the actions to apply
+   * @return true if there is a next input and it is due
+   */
+  public boolean isDue(ReplayTimeline<Actions> inputs) {
+    return isDue(inputs, byTick, game.getTick(), timePlayed);
+  }
+
+  /**
+   * Gets the game being run.
+   *
+   * @return the game
+   */
+  public Domain getGame() {
+    return game;
+  }
+
+  /**
+   * Gets the game time played in the current level.
+   *
+   * @return the time played in nanoseconds
+   */
+  public long getTimePlayed() {
+    return timePlayed;
+  }
+
+  //==============================================================================================//
+  //================================== Utility Method ============================================//
+  //==============================================================================================//
+
+  /**
+   * Checks if the game is won or lost.
+   *
+   * @return true if the game is over
+   */
+  public boolean isFinished() {
+    return game.getGameState() == GameState.WON || game.getGameState() == GameState.LOST;
+  }
+
+  /**
+   * Resets the time played for the current level.
+   */
+  private void resetTime() {
+    timePlayed = 0;
+    timeLimit = game.getCurrentTimeLimit()
+        * 1_000_000_000L; // converts time limit from seconds to nanoseconds
+  }
+
+  /**
+   * Runs a new game headless, and prints how it ended and how fast it ran.
+   *
+   * @param args the most ticks to run (default 10000), and optionally the slot of a recording to
+   *             take the inputs from
+   * @throws DocumentException if the recording cannot be read
+   */
+  public static void main(String... args) throws DocumentException {
+    ClassLoader.getSystemClassLoader().setDefaultAssertionStatus(true);
+    int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+    List<Pair<Long, Actions>> inputs = new ArrayList<>();
+    boolean byTick = args.length <= 1 || RecorderPersistency.loadTimeline(
+        Integer.parseInt(args[1]), (tick, action) -> inputs.add(new Pair<>(tick, action)));
+
+    Result result =
+        new HeadlessRunner(DomainPersistency.getInitial(), 0, byTick).run(ticks, inputs);
+    System.out.println(result);
+  }
+
+  /**
+   * The result of a headless run.
+   *
+   * @param ticks   the number of ticks run
+   * @param state   the state of the game at the end of the run
+   * @param level   the level the game was on at the end of the run
+   * @param actions the number of inputs applied
+   * @param nanos   the wall clock time the run took, in nanoseconds
+   */
+  public record Result(int ticks, GameState state, int level, int actions, long nanos) {
+
+    /**
+     * Gets the number of ticks run per second of wall clock time.
+     *
+     * @return ticks per second
+     */
+    public double ticksPerSecond() {
+      return nanos == 0 ? 0 : ticks * 1_000_000_000.0 / nanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d ticks (%d actions) in %.1f ms, %.0f ticks/sec, ended %s on level %d",
+          ticks, actions, nanos / 1_000_000.0, ticksPerSecond(), state, level);
+    }
+  }
+}
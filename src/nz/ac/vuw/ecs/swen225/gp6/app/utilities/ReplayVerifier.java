@@ -0,0 +1,167 @@
+package nz.ac.vuw.ecs.swen225.gp6.app.utilities;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Domain;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Domain.GameState;
+import nz.ac.vuw.ecs.swen225.gp6.persistency.DomainPersistency;
+import nz.ac.vuw.ecs.swen225.gp6.persistency.RecorderPersistency;
+import nz.ac.vuw.ecs.swen225.gp6.recorder.datastructures.Checkpoints;
+import nz.ac.vuw.ecs.swen225.gp6.recorder.datastructures.RecordTimeline;
+import nz.ac.vuw.ecs.swen225.gp6.recorder.datastructures.ReplayTimeline;
+
+/**
+ * This class replays every recording in res/recordings without the GUI, to check they still play
+ * out the same after the game is changed. Each recording is replayed by a HeadlessRunner on a new
+ * game from {@link DomainPersistency#getInitial()}, until its actions run out or the game is won
+ * or lost, and the recordings are shared out across the threads of a fork join pool.
+ *
+ * <p>Each recording gets one line of the report, with how it ended, its last tick and a hash of
+ * the final state, and the first tick it did not match a checkpoint of the recording on (if it
+ * has checkpoints). These lines do not depend on how fast the machine is, so the reports from
+ * before and after a change can be compared with diff. The time taken is only in the summary at
+ * the end.</p>
+ *
+ * @author Jeff Lin
+ */
+public final class ReplayVerifier {
+
+  private final ForkJoinPool pool;
+
+  /**
+   * Constructor for the ReplayVerifier class.
+   *
+   * @param threads the number of recordings to replay at once
+   */
+  public ReplayVerifier(int threads) {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Threads must be positive");
+    }
+    this.pool = new ForkJoinPool(threads);
+  }
+
+  /**
+   * Replays recordings, each on its own new game.
+   *
+   * @param slots the slots of the recordings to replay
+   * @return the outcome of each replay, in the order of the slots
+   */
+  public List<Outcome> verify(List<Integer> slots) {
+    DomainPersistency.getInitial(); // makes the level pack once, before the threads read it
+
+    List<ForkJoinTask<Outcome>> tasks = new ArrayList<>();
+    for (int slot : slots) {
+      tasks.add(pool.submit(() -> verify(slot)));
+    }
+    List<Outcome> outcomes = new ArrayList<>();
+    for (ForkJoinTask<Outcome> task : tasks) {
+      outcomes.add(task.join());
+    }
+    return outcomes;
+  }
+
+  /**
+   * Stops the threads of the pool.
+   */
+  public void shutdown() {
+    pool.shutdown();
+  }
+
+  /**
+   * Replays one recording on a new game. A recording that cannot be read, or that breaks the
+   * game, is given as an outcome with an error rather than thrown, so the other replays go on.
+   *
+   * @param slot the slot of the recording
+   * @return the outcome of the replay
+   */
+  public static Outcome verify(int slot) {
+    long start = System.nanoTime();
+    try {
+      RecordTimeline<Actions> recording = new RecordTimeline<>(Actions.class);
+      Checkpoints checkpoints = new Checkpoints();
+      boolean byTick = RecorderPersistency.loadTimeline(slot, recording::add, checkpoints::add);
+      ReplayTimeline<Actions> timeline = new ReplayTimeline<>(recording);
+
+      HeadlessRunner runner = new HeadlessRunner(DomainPersistency.getInitial(), 0, byTick);
+      Domain game = runner.getGame();
+      long desync = -1;
+      while (timeline.hasNext() && !runner.isFinished()) {
+        runner.tick(timeline);
+        int index = checkpoints.find(game.getTick());
+        if (desync == -1 && index != -1 && checkpoints.hash(index) != game.stateHash()) {
+          desync = game.getTick();
+        }
+      }
+      return new Outcome(slot, game.getGameState(), game.getCurrentLevel(), game.getTick(),
+          game.stateHash(), desync, timeline.position(), System.nanoTime() - start, null);
+    } catch (Exception | AssertionError e) {
+      return new Outcome(slot, null, 0, 0, 0, -1, 0, System.nanoTime() - start, e.toString());
+    }
+  }
+
+  //==============================================================================================//
+  //================================== Utility Method ============================================//
+  //==============================================================================================//
+
+  /**
+   * Replays every recording in res/recordings, and prints how each ended and how fast they ran.
+   *
+   * @param args optionally the number of recordings to replay at once (default one per core)
+   */
+  public static void main(String... args) {
+    ClassLoader.getSystemClassLoader().setDefaultAssertionStatus(true);
+    int threads = args.length > 0 ? Integer.parseInt(args[0])
+        : Runtime.getRuntime().availableProcessors();
+    List<Integer> slots = RecorderPersistency.slots();
+
+    ReplayVerifier verifier = new ReplayVerifier(threads);
+    long start = System.nanoTime();
+    List<Outcome> outcomes = verifier.verify(slots);
+    long nanos = System.nanoTime() - start;
+    verifier.shutdown();
+
+    long ticks = 0;
+    int errors = 0;
+    for (Outcome outcome : outcomes) {
+      System.out.println(outcome);
+      ticks += outcome.tick();
+      errors += outcome.error() == null && outcome.desync() == -1 ? 0 : 1;
+    }
+    System.out.printf("%d recordings (%d failed), %d ticks in %.1f ms on %d threads,"
+            + " %.0f ticks/sec, %.1f recordings/sec%n", outcomes.size(), errors, ticks,
+        nanos / 1_000_000.0, threads, ticks * 1_000_000_000.0 / Math.max(nanos, 1),
+        outcomes.size() * 1_000_000_000.0 / Math.max(nanos, 1));
+    if (errors > 0) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * The outcome of replaying a recording.
+   *
+   * @param slot    the slot of the recording
+   * @param state   the state of the game at the end of the replay, or null if it failed
+   * @param level   the level the game was on at the end of the replay
+   * @param tick    the number of pings done when the replay ended
+   * @param hash    a hash of the final state of the game, see {@link Domain#stateHash()}
+   * @param desync  the first tick the game did not match the recording's checkpoint on, or -1
+   * @param actions the number of actions replayed
+   * @param nanos   the wall clock time the replay took, in nanoseconds
+   * @param error   why the replay failed, or null if it did not
+   */
+  public record Outcome(int slot, GameState state, int level, long tick, long hash, long desync,
+                        int actions, long nanos, String error) {
+
+    @Override
+    public String toString() {
+      if (error != null) {
+        return String.format("recording %d: ERROR %s", slot, error);
+      }
+      return String.format("recording %d: %s on level %d at tick %d, %d actions, hash %016x%s",
+          slot, state, level, tick, actions, hash,
+          desync == -1 ? "" : ", DESYNC at tick " + desync);
+    }
+  }
+}
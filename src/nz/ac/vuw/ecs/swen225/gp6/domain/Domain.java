@@ -1,8 +1,10 @@
 package nz.ac.vuw.ecs.swen225.gp6.domain;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.List;
+import java.util.function.IntFunction;
 import java.util.stream.IntStream;
 import nz.ac.vuw.ecs.swen225.gp6.domain.IntegrityCheck.CheckGame;
 import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.Tile;
@@ -19,9 +21,11 @@ import nz.ac.vuw.ecs.swen225.gp6.domain.Utility.Direction;
  */
 public class Domain {
 
-  private List<Level> levels; //each corresponds to a level (in order)
+  private List<Level> levels; //each corresponds to a level (in order), null if not loaded yet
+  private IntFunction<Level> loader; //loads a level by its index, null if all levels are loaded
   private int currentLvlIndex; //Note: first level should be 1
   private GameState state;
+  private long tick; //number of pings done since the game started, across all levels
 
   //domain events whose behaviour is dictated by app
   private EnumMap<DomainEvent, List<Runnable>> eventListeners
@@ -81,12 +85,35 @@ public class Domain {
   }
 
   /**
-   * gets a list of mazes in order of the levels they are in.
+   * makes a domain whose levels are only loaded when they are first needed: the current level right
+   * away, and every other level when it becomes the current level. Levels that are never played are
+   * never loaded (unless all the levels are asked for, e.g. to save the game).
+   *
+   * @param levelCount - number of levels
+   * @param loader     - loads a level from its index starting at 1, called at most once per level
+   * @param currentLvl - the index of the current level starting at 1
+   * @return the new domain
+   * @throws IndexOutOfBoundsException if currentLvl is < 1 or > levelCount
+   * @throws NullPointerException      if loader is null
+   */
+  public static Domain lazy(int levelCount, IntFunction<Level> loader, int currentLvl) {
+    if (loader == null) {
+      throw new NullPointerException("level loader cannot be null (Domain.lazy)");
+    }
+    Domain d = new Domain(new ArrayList<Level>(Collections.nCopies(Math.max(levelCount, 0), null)),
+        currentLvl);
+    d.loader = loader;
+    d.level(currentLvl);
+    return d;
+  }
+
+  /**
+   * gets a list of mazes in order of the levels they are in, loading any level not loaded yet.
    *
    * @return - list of mazes
    */
   public List<Maze> getMazes() {
-    return levels.stream().map(l -> l.maze).toList();
+    return getLevels().stream().map(l -> l.maze).toList();
   }
 
   /**
@@ -115,17 +142,75 @@ public class Domain {
    * @return - current level object
    */
   public Level getCurrentLevelObject() {
-    return levels.get(currentLvlIndex - 1);
+    return level(currentLvlIndex);
   }
 
   /**
    * returns the list of level time limits, where each element corresponds to a level, and the level
-   * is restarted if time runs out.
+   * is restarted if time runs out. Loads any level not loaded yet.
    *
    * @return the list of level time limits (in order)
    */
   public List<Integer> getLevelTimeLimits() {
-    return levels.stream().map(l -> l.timeLimit).toList();
+    return getLevels().stream().map(l -> l.timeLimit).toList();
+  }
+
+  /**
+   * finds out if a level has been loaded yet, see {@link #lazy(int, IntFunction, int)}.
+   *
+   * @param lvl - the index of the level starting at 1
+   * @return true if the level is loaded
+   * @throws IndexOutOfBoundsException if lvl is not at least 1 or is bigger than the number of
+   *                                   levels
+   */
+  public boolean isLevelLoaded(int lvl) {
+    if (lvl < 1 || lvl > levels.size()) {
+      throw new IndexOutOfBoundsException("invalid level index (Domain.isLevelLoaded)");
+    }
+    return levels.get(lvl - 1) != null;
+  }
+
+  /**
+   * gets the number of levels, without loading any.
+   *
+   * @return number of levels
+   */
+  public int getLevelCount() {
+    return levels.size();
+  }
+
+  /**
+   * gets a level, loading it first if it is not loaded yet, without loading any other level.
+   *
+   * @param lvl - the index of the level starting at 1
+   * @return the level
+   * @throws IndexOutOfBoundsException if lvl is not at least 1 or is bigger than the number of
+   *                                   levels
+   */
+  public Level getLevel(int lvl) {
+    if (lvl < 1 || lvl > levels.size()) {
+      throw new IndexOutOfBoundsException("invalid level index (Domain.getLevel)");
+    }
+    return level(lvl);
+  }
+
+  /**
+   * gets a level, loading it first if it is not loaded yet.
+   *
+   * @param lvl - the index of the level starting at 1
+   * @return the level
+   * @throws NullPointerException if the level could not be loaded
+   */
+  private Level level(int lvl) {
+    Level level = levels.get(lvl - 1);
+    if (level == null && loader != null) {
+      level = loader.apply(lvl);
+      if (level == null) {
+        throw new NullPointerException("level " + lvl + " could not be loaded (Domain.level)");
+      }
+      levels.set(lvl - 1, level);
+    }
+    return level;
   }
 
   /**
@@ -174,47 +259,114 @@ public class Domain {
   }
 
   /**
-   * pings the game one step, and replaces the current level object with a new level.
+   * pings the game one step, and replaces the current level object with a new level. The ping is
+   * done on the current maze itself while it records the cells that change, so a ping costs as much
+   * as the cells it changes rather than the size of the maze. If the ping breaks the integrity of
+   * the game, only those cells are put back.
    */
   public void pingDomain() {
     CheckGame.checkCurrentState(this); //check current state integrity
 
-    //copy current maze
-    Maze currentMaze = getCurrentMaze();
-    Maze nextMaze = new Maze(currentMaze.getTileArrayCopy());
+    int lvlIndex = this.currentLvlIndex;
+    Level currentLvl = getCurrentLevelObject();
+    Maze maze = currentLvl.maze;
 
     //copy current inventory
-    Inventory preInv = levels.get(currentLvlIndex - 1).inv;
+    Inventory preInv = currentLvl.inv;
     Inventory nextInv = new Inventory(preInv.size(), preInv.coins(), preInv.getItems());
 
-    //copy levels
-    Level currentLvl = getCurrentLevelObject();
-    List<Level> nextLevels = new ArrayList<Level>(this.levels);
-    nextLevels.set(this.currentLvlIndex - 1,
-        new Level(nextMaze, nextInv, this.currentLvlIndex, currentLvl.timeLimit,
-            currentLvl.getCurrentTime(), currentLvl.getHeroNextStep()));
+    //start recording changed cells, preMaze keeps showing the maze as it is before the ping
+    Maze preMaze = maze.beginTick();
 
-    //copy domain
-    Domain nextDomain = new Domain(nextLevels, this.currentLvlIndex);
-    nextDomain.eventListeners = this.eventListeners;
+    //domain before the ping (for checking) and domain to ping
+    Domain preDomain = withCurrentLevel(new Level(preMaze, preInv, lvlIndex, currentLvl.timeLimit,
+        currentLvl.getCurrentTime(), currentLvl.getHeroNextStep()));
+    Level nextLvl = new Level(maze, nextInv, lvlIndex, currentLvl.timeLimit,
+        currentLvl.getCurrentTime(), currentLvl.getHeroNextStep());
+    Domain nextDomain = withCurrentLevel(nextLvl);
 
     //ping
-    nextMaze.pingMaze(nextDomain); //ping the new domain
+    try {
+      maze.pingMaze(nextDomain); //ping the new domain
 
-    CheckGame.checkStateChange(this, nextDomain); //check state change integrity
+      CheckGame.checkStateChange(preDomain, nextDomain); //check state change integrity
+    } catch (RuntimeException e) {
+      maze.rollbackTick(); //put back the changed cells
+      throw e;
+    }
+    maze.commitTick();
 
     this.state = nextDomain.state; //update domain
-    levels.set(this.currentLvlIndex - 1,
-        nextLevels.get(this.currentLvlIndex - 1)); //replace ONLY the current level
+    levels.set(lvlIndex - 1, nextLvl); //replace ONLY the pinged level
+    this.tick++;
+  }
+
+  /**
+   * makes a domain with the same levels and event listeners as this domain, but with the given
+   * level in place of the current level.
+   *
+   * @param lvl level to replace the current level with
+   * @return the new domain
+   */
+  private Domain withCurrentLevel(Level lvl) {
+    List<Level> nextLevels = new ArrayList<Level>(this.levels);
+    nextLevels.set(this.currentLvlIndex - 1, lvl);
 
+    Domain d = new Domain(nextLevels, this.currentLvlIndex);
+    d.eventListeners = this.eventListeners;
+    d.loader = this.loader;
+    return d;
   }
 
   /**
-   * gets the list of levels.
+   * makes a copy of the game that shares nothing with it, not even its tile objects (see
+   * {@link Level#deepCopy()}), e.g. to go back to later while the game goes on. The tiles that are
+   * pinged (e.g. the hero) change themselves, so they only stay as they are in a copy of their own.
+   * Levels not loaded yet are loaded by the copy itself when they are needed. Event listeners are
+   * not copied.
+   *
+   * @return the copy
+   * @throws IllegalStateException if the game is in the middle of a ping
+   */
+  public Domain deepCopy() {
+    List<Level> copies = new ArrayList<Level>(levels.size());
+    for (Level level : levels) {
+      copies.add(level == null ? null : level.deepCopy());
+    }
+    Domain d = new Domain(copies, this.currentLvlIndex);
+    d.state = this.state;
+    d.loader = this.loader;
+    d.tick = this.tick;
+    return d;
+  }
+
+  /**
+   * makes a copy of the game as it is now, e.g. to save it while the game goes on. Each level is
+   * copied (cheaply, see {@link Maze#copy()}) except levels not loaded yet, which the copy loads
+   * itself when they are needed. Event listeners are not copied.
+   *
+   * @return the copy
+   * @throws IllegalStateException if the game is in the middle of a ping
+   */
+  public Domain snapshot() {
+    List<Level> copies = new ArrayList<Level>(levels.size());
+    for (Level level : levels) {
+      copies.add(level == null ? null : level.copy());
+    }
+    Domain d = new Domain(copies, this.currentLvlIndex);
+    d.state = this.state;
+    d.loader = this.loader;
+    d.tick = this.tick;
+    return d;
+  }
+
+  /**
+   * gets the list of levels, loading any level not loaded yet.
    *
    * @return list of levels
    */
   public List<Level> getLevels() {
+    IntStream.rangeClosed(1, levels.size()).forEach(this::level);
     return new ArrayList<Level>(this.levels);
   }
 
@@ -230,7 +382,7 @@ public class Domain {
   //GETTERS:
 
   /**
-   * sets current level to specified level index.
+   * sets current level to specified level index, loading the level if it is not loaded yet.
    *
    * @param lvl the level index to switch to
    * @throws IndexOutOfBoundsException if lvl is not at least 1 or is bigger than the number of
@@ -240,6 +392,7 @@ public class Domain {
     if (lvl < 1 || lvl > levels.size()) {
       throw new IndexOutOfBoundsException("invalid level index (Domain.setCurrentLevelIndex)");
     }
+    level(lvl);
     this.currentLvlIndex = lvl;
   }
 
@@ -249,7 +402,7 @@ public class Domain {
    * @return time limit of current level
    */
   public int getCurrentTimeLimit() {
-    return getLevelTimeLimits().get(currentLvlIndex - 1);
+    return getCurrentLevelObject().timeLimit;
   }
 
   /**
@@ -258,7 +411,7 @@ public class Domain {
    * @return current time
    */
   public long getCurrentTime() {
-    return levels.get(currentLvlIndex - 1).getCurrentTime();
+    return getCurrentLevelObject().getCurrentTime();
   }
 
   /**
@@ -279,6 +432,45 @@ public class Domain {
     return getCurrentMaze().getTileCount(TileType.Coin);
   }
 
+  /**
+   * gets the number of pings done since the game started, across all levels. A ping that breaks
+   * the integrity of the game is not counted. Recordings stamp each action with the tick it was
+   * done on, so a replay can do it on exactly the same tick.
+   *
+   * @return the tick number
+   */
+  public long getTick() {
+    return tick;
+  }
+
+  /**
+   * sets the number of pings done since the game started, e.g. when a saved game is loaded.
+   *
+   * @param tick the tick number
+   * @throws IllegalArgumentException if tick is negative
+   */
+  public void setTick(long tick) {
+    if (tick < 0) {
+      throw new IllegalArgumentException("tick cannot be negative (Domain.setTick)");
+    }
+    this.tick = tick;
+  }
+
+  /**
+   * gets a hash of the state of the game: the level it is on, whether it is won or lost, and the
+   * tile types on the current maze and the items in the current inventory. Games in the same state
+   * share it, so a replay can check it is still in step with the game it was recorded from. The
+   * maze keeps its hash up to date as it changes (see {@link Maze#stateHash()}), so this costs the
+   * same however large the maze is.
+   *
+   * @return hash of the state of the game
+   */
+  public long stateHash() {
+    Level lvl = getCurrentLevelObject();
+    return Maze.mix(((long) currentLvlIndex << 8 | state.ordinal()) + 1)
+        ^ lvl.maze.stateHash() ^ Maze.mix(lvl.inv.stateHash());
+  }
+
   /**
    * gets state of the game(won, lost, inbetween levels, playing).
    *
@@ -312,7 +504,7 @@ public class Domain {
    * @return true if the hero is on the info tile of the level, else false
    */
   public boolean heroIsOnInfo() {
-    return ((Hero) (getCurrentMaze().getTileThat(t -> t.type() == TileType.Hero))).tileOn().type()
+    return ((Hero) getCurrentMaze().getTileOfType(TileType.Hero)).tileOn().type()
         == TileType.Info;
   }
 
@@ -327,8 +519,7 @@ public class Domain {
     if (!heroIsOnInfo()) {
       throw new RuntimeException("hero is not on info");
     }
-    return ((Info) (((Hero) getCurrentMaze().getTileThat(
-        t -> t.type() == TileType.Hero)).tileOn())).message();
+    return ((Info) ((Hero) getCurrentMaze().getTileOfType(TileType.Hero)).tileOn()).message();
   }
 
   /**
@@ -341,7 +532,8 @@ public class Domain {
   }
 
   /**
-   * gets a copy of current level's maze's game array (shallow copy).
+   * gets a copy of current level's maze's game array (shallow copy). this copies the whole level,
+   * to read part of it use {@link Maze#visitWindow(int, int, int, int, Maze.CellVisitor)}.
    *
    * @return a copy of current level's maze's game array
    */
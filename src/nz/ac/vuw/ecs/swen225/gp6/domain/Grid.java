@@ -0,0 +1,75 @@
+package nz.ac.vuw.ecs.swen225.gp6.domain;
+
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.Tile;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.TileType;
+
+/**
+ * The cells a maze keeps its tiles in. A grid either holds a tile object for every cell, or packs
+ * plain terrain tiles into their types and makes the tile objects when they are asked for.
+ *
+ * @author Name: Mahdi Najafi ID: 300606634
+ */
+interface Grid {
+
+  /**
+   * gets the tile of a cell, a packed cell gets a newly made tile each time.
+   *
+   * @param x x coord
+   * @param y y coord
+   * @return the tile of the cell, null if the cell has no tile
+   */
+  Tile get(int x, int y);
+
+  /**
+   * gets the type of the tile of a cell, without making the tile.
+   *
+   * @param x x coord
+   * @param y y coord
+   * @return the type of the tile of the cell, null if the cell has no tile
+   */
+  TileType typeAt(int x, int y);
+
+  /**
+   * sets the tile of a cell.
+   *
+   * @param x    x coord
+   * @param y    y coord
+   * @param tile new tile of the cell (may be null)
+   */
+  void set(int x, int y, Tile tile);
+
+  /**
+   * finds out if a tile object is the tile of a cell. A packed cell has no tile object of its own,
+   * so any tile it would make (same type and location) is its tile.
+   *
+   * @param x    x coord
+   * @param y    y coord
+   * @param tile tile to compare
+   * @return true if the tile is the tile of the cell
+   */
+  boolean holds(int x, int y, Tile tile);
+
+  /**
+   * finds the first cell, from the given cell index on (x * height + y), whose tile may do
+   * something when pinged.
+   *
+   * @param from cell index to start from
+   * @return cell index of the cell, or -1 if there is none
+   */
+  int nextPinged(int from);
+
+  /**
+   * makes a copy of the grid, sharing its tile objects.
+   *
+   * @return the copy
+   */
+  Grid copy();
+
+  /**
+   * makes a copy of the grid with copies of its tile objects (see
+   * {@link TileType#deepCopyTile(Tile)}), so the copy shares nothing with this grid.
+   *
+   * @return the copy
+   */
+  Grid deepCopy();
+}
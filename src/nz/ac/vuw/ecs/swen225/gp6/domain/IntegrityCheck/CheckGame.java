@@ -17,7 +17,6 @@ import nz.ac.vuw.ecs.swen225.gp6.domain.TileGroups.Key.KeyColor;
 import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.Coin;
 import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.ExitDoorOpen;
 import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.Hero;
-import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.Null;
 import nz.ac.vuw.ecs.swen225.gp6.domain.Utility.Loc;
 
 
@@ -31,10 +30,35 @@ import nz.ac.vuw.ecs.swen225.gp6.domain.Utility.Loc;
  * <p> This class should be UPDATED REGULARLY to keep up with any new futures the game will
  * have.</p>
  *
+ * <p>By default the coin and door rules are checked from the tile counts the maze keeps as tiles
+ * are set, so they only cost the cells changed in a tick. The full scan mode recounts every tile
+ * of the maze instead, for tests and fuzzing to catch the counts going wrong.</p>
+ *
  * @author Name: Mahdi Najafi ID: 300606634
  */
 public final class CheckGame {
 
+  private static volatile boolean fullScan = false; //recount tiles by scanning the whole maze
+
+  /**
+   * sets whether the checks recount tiles by scanning the whole maze (and verify the counts kept by
+   * the maze against it), rather than using the tile counts kept by the maze.
+   *
+   * @param fullScan true to scan the whole maze on every check
+   */
+  public static void setFullScan(boolean fullScan) {
+    CheckGame.fullScan = fullScan;
+  }
+
+  /**
+   * finds out whether the checks scan the whole maze.
+   *
+   * @return true if tiles are recounted by scanning the whole maze
+   */
+  public static boolean isFullScan() {
+    return fullScan;
+  }
+
   /**
    * Checks the integrity of the game after a ping, and the game state is transitioning a step
    * forward. (so the domain have correctly transitioned from before ping state to after ping
@@ -70,8 +94,8 @@ public final class CheckGame {
 
     //COINS:
     //check there is the same amounts of coins in the maze and inventory combined before and after
-    int numCoinsBefore = getAllTiles(preMaze, TileType.Coin).size() + preInv.coins();
-    int numCoinsAfter = getAllTiles(afterMaze, TileType.Coin).size() + afterInv.coins();
+    int numCoinsBefore = countTiles(preMaze, TileType.Coin) + preInv.coins();
+    int numCoinsAfter = countTiles(afterMaze, TileType.Coin) + afterInv.coins();
     if (numCoinsBefore != numCoinsAfter) {
       throw new IllegalStateException("There were a total of " + numCoinsBefore
           + " coins in game before, but now there are " + numCoinsAfter);
@@ -113,20 +137,21 @@ public final class CheckGame {
 
     //COIN:
     //check that there is at least 1 coin in total in game
-    if (getAllTiles(maze, TileType.Coin).size() + inv.coins() < 1) {
+    int coinsOnMaze = countTiles(maze, TileType.Coin);
+    if (coinsOnMaze + inv.coins() < 1) {
       throw new IllegalStateException("There are no(or negative) coins in game");
     }
 
     //check door is closed if coins left on maze, open otherwise
-    Tile closedDoor = getTile(maze, TileType.ExitDoor);
-    Tile openDoor = getTile(maze, TileType.ExitDoorOpen);
-    if (getAllTiles(maze, TileType.Coin).size() == 0) {
-      if (!(closedDoor instanceof Null) || openDoor instanceof Null) {
+    boolean closedDoor = countTiles(maze, TileType.ExitDoor) > 0;
+    boolean openDoor = countTiles(maze, TileType.ExitDoorOpen) > 0;
+    if (coinsOnMaze == 0) {
+      if (closedDoor || !openDoor) {
         throw new IllegalStateException(
             "The exit door is not open, but there are no coins on maze.");
       }
     } else {
-      if (closedDoor instanceof Null || !(openDoor instanceof Null)) {
+      if (!closedDoor || openDoor) {
         throw new IllegalStateException("The exit door is open, but there are coins left on maze.");
       }
     }
@@ -308,7 +333,7 @@ public final class CheckGame {
    * @param type type of tile to find
    */
   public static Tile getTile(Maze maze, TileType type) {
-    return maze.getTileThat(t -> t.type() == type);
+    return maze.getTileOfType(type);
   }
 
   /**
@@ -318,6 +343,27 @@ public final class CheckGame {
    * @param type type of tile to find
    */
   public static List<Tile> getAllTiles(Maze maze, TileType type) {
-    return maze.getAllTilesThat(t -> t.type() == type);
+    return maze.getAllTilesOfType(type);
+  }
+
+  /**
+   * returns the number of tiles with given type in the maze. In full scan mode the whole maze is
+   * scanned, and the count kept by the maze is checked against it.
+   *
+   * @param maze maze to count tiles in
+   * @param type type of tile to count
+   * @throws IllegalStateException in full scan mode, if the count kept by the maze is wrong
+   */
+  private static int countTiles(Maze maze, TileType type) {
+    if (!fullScan) {
+      return maze.getTileCount(type);
+    }
+
+    int scanned = maze.getAllTilesThat(t -> t.type() == type).size();
+    if (scanned != maze.getTileCount(type)) {
+      throw new IllegalStateException("The maze counts " + maze.getTileCount(type) + " "
+          + type.name() + " tiles, but there are " + scanned);
+    }
+    return scanned;
   }
 }
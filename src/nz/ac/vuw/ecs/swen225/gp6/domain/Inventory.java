@@ -173,6 +173,20 @@ public class Inventory {
     return true;
   }
 
+  /**
+   * gets a hash of the inventory: the number of coins and the type of the item in each place. Two
+   * inventories holding the same types of items in the same places with the same coins share it.
+   *
+   * @return hash of the inventory
+   */
+  public long stateHash() {
+    long h = Maze.mix(coins + 1L);
+    for (Tile item : items) {
+      h = Maze.mix(h ^ (item.type().ordinal() + 1L));
+    }
+    return h;
+  }
+
   /**
    * returns a string representation of the inventory. the size, and the tiles contained using their
    * symbol character.
@@ -1,5 +1,8 @@
 package nz.ac.vuw.ecs.swen225.gp6.domain;
 
+import java.util.List;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.Tile;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.TileType;
 import nz.ac.vuw.ecs.swen225.gp6.domain.Utility.Direction;
 
 /**
@@ -111,4 +114,29 @@ public class Level {
   public void makeHeroStep(Direction d) {
     this.heroNextStep = d;
   }
+
+  /**
+   * makes a copy of the level, with a copy of its maze and inventory, that later changes to this
+   * level don't show in.
+   *
+   * @return the copy
+   * @throws IllegalStateException if the maze is in the middle of a tick
+   */
+  public Level copy() {
+    return new Level(maze.copy(), new Inventory(inv.size(), inv.coins(), inv.getItems()), lvl,
+        timeLimit, timeCurrent, heroNextStep);
+  }
+
+  /**
+   * makes a copy of the level that shares nothing with it, not even its tile objects (see
+   * {@link Maze#deepCopy()}), e.g. to play the level from a template of it that must not change.
+   *
+   * @return the copy
+   * @throws IllegalStateException if the maze is in the middle of a tick
+   */
+  public Level deepCopy() {
+    List<Tile> items = inv.getItems().stream().map(TileType::deepCopyTile).toList();
+    return new Level(maze.deepCopy(), new Inventory(inv.size(), inv.coins(), items), lvl,
+        timeLimit, timeCurrent, heroNextStep);
+  }
 }
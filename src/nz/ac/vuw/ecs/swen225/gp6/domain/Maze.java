@@ -1,10 +1,15 @@
 package nz.ac.vuw.ecs.swen225.gp6.domain;
 
 
-import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
 import java.util.function.Predicate;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.Tile;
 import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.TileInfo;
 import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.TileType;
@@ -13,25 +18,179 @@ import nz.ac.vuw.ecs.swen225.gp6.domain.Utility.Loc;
 
 
 /**
- * A class that holds a 2d array of tiles representing the maze in the game.
+ * <p>A class that holds a 2d array of tiles representing the maze in the game.</p>
+ *
+ * <p>A maze made with {@link #packed(int, int)} keeps only the tile type of plain terrain cells
+ * (about a byte per cell) and makes those tiles when they are asked for, so very large mazes fit in
+ * memory. Every other tile is kept as it is, and the maze behaves the same either way.</p>
+ *
+ * <p>The maze keeps a hash of the tile type of every cell (Zobrist style, each cell and type has
+ * its own random key, xor-ed in and out as tiles are set), so hashing the maze after a tick only
+ * costs the cells the tick changed.</p>
+ *
+ * <p>The maze also keeps the cells whose tile does something when pinged (its class overrides
+ * {@link Tile#ping(Domain)}, e.g. the hero and custom actors), so a ping of the maze only visits
+ * those, and costs the number of actors rather than the size of the maze.</p>
  *
  * @author Name: Mahdi Najafi ID: 300606634
  */
 public class Maze {
 
-  private final Tile[][] tileArray;
+  private static final int TYPES = TileType.values().length; //number of tile types
+
+  //whether tiles of a class do something when pinged, found once per class (custom tiles too)
+  private static final ClassValue<Boolean> pingable = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(Class<?> c) {
+      try {
+        return c.getMethod("ping", Domain.class).getDeclaringClass() != Tile.class;
+      } catch (NoSuchMethodException e) {
+        return false;
+      }
+    }
+  };
+
+  private final Grid grid; //cells of the maze
   private final int height; //height of tile array, how many rows (outer array)
   private final int width;  //width of tile array, how many columns (inner arrays)
 
+  //the maze this maze is a pre-tick view of (null if this maze is not a view)
+  private final Maze live;
+  //original tiles of the cells changed since the tick began, by cell index (null if no tick)
+  private Map<Integer, Tile> changes;
+
+  //cells of each tile type on the maze by cell index, in the order the maze is scanned in
+  //(floors and walls are not indexed, there are too many of them to be worth it)
+  private final Map<TileType, TreeSet<Integer>> index;
+  private Tile hero; //first hero on the maze, null if there is none
+  private final TreeSet<Integer> active; //cells whose tile does something when pinged, by index
+  private final int[] counts; //number of tiles of each tile type on the maze, by ordinal
+  private long hash; //xor of the keys of the tile type of every cell, see stateHash()
+
   /**
    * Constructs a new 2d array of tiles based on a given 2d tile array.
    *
    * @param tileArray a 2d array of type Tile
    */
   public Maze(Tile[][] tileArray) {
-    this.tileArray = tileArray;
-    this.height = tileArray.length;
-    this.width = tileArray[0].length;
+    this(new ObjectGrid(tileArray), tileArray[0].length, tileArray.length);
+  }
+
+  /**
+   * Constructs a maze from its cells, and indexes and counts its tiles.
+   *
+   * @param grid   cells of the maze
+   * @param width  width of the maze
+   * @param height height of the maze
+   */
+  private Maze(Grid grid, int width, int height) {
+    this.grid = grid;
+    this.height = height;
+    this.width = width;
+    this.live = null;
+
+    this.counts = new int[TileType.values().length];
+    this.index = new EnumMap<TileType, TreeSet<Integer>>(TileType.class);
+    for (TileType type : TileType.values()) {
+      if (isIndexed(type)) {
+        index.put(type, new TreeSet<Integer>());
+      }
+    }
+    for (int x = 0; x < width; x++) {
+      for (int y = 0; y < height; y++) {
+        addToIndex(x, y, grid.typeAt(x, y));
+      }
+    }
+
+    //only cells that are not packed terrain can hold a tile that does something when pinged
+    this.active = new TreeSet<Integer>();
+    for (int i = grid.nextPinged(0); i != -1; i = grid.nextPinged(i + 1)) {
+      if (isPingable(grid.get(i / height, i % height))) {
+        active.add(i);
+      }
+    }
+  }
+
+  /**
+   * Constructs a maze that packs plain terrain into one byte per cell, with every cell a floor.
+   * Tiles are set on it the same way as on any other maze.
+   *
+   * @param width  width of the maze
+   * @param height height of the maze
+   * @return new maze filled with floors
+   * @throws IllegalArgumentException if width or height is not positive
+   */
+  public static Maze packed(int width, int height) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException(
+          "maze must have a positive width and height (Maze.packed)");
+    }
+    return new Maze(new PackedGrid(width, height), width, height);
+  }
+
+  /**
+   * Constructs a read only view of a live maze, which shows the tiles the live maze had when its
+   * current tick began.
+   *
+   * @param live the maze to view
+   */
+  private Maze(Maze live) {
+    this.grid = live.grid;
+    this.height = live.height;
+    this.width = live.width;
+    this.live = live;
+    this.index = live.index;
+    this.counts = live.counts;
+    this.active = live.active;
+  }
+
+  /**
+   * Constructs a copy of a maze that shares its tile objects, with its own cells, index and counts.
+   *
+   * @param maze the maze to copy
+   * @param grid copy of the cells of the maze
+   */
+  private Maze(Maze maze, Grid grid) {
+    this.grid = grid;
+    this.height = maze.height;
+    this.width = maze.width;
+    this.live = null;
+    this.counts = maze.counts.clone();
+    this.hash = maze.hash;
+    this.active = new TreeSet<Integer>(maze.active);
+    this.index = new EnumMap<TileType, TreeSet<Integer>>(TileType.class);
+    maze.index.forEach((type, cells) -> index.put(type, new TreeSet<Integer>(cells)));
+    TreeSet<Integer> heroes = index.get(TileType.Hero);
+    this.hero = heroes.isEmpty() ? null : tileAtCell(heroes.first()); //the copy's own hero
+  }
+
+  /**
+   * makes a copy of this maze that later changes to this maze don't show in. The tile objects are
+   * shared, so the copy is cheap: a copy of the cells array, or of the bytes of a packed maze.
+   *
+   * @return the copy, packed if this maze is packed
+   * @throws IllegalStateException if this maze is a pre-tick view or is in the middle of a tick
+   */
+  public Maze copy() {
+    if (live != null || changes != null) {
+      throw new IllegalStateException("cannot copy a maze during a tick (Maze.copy)");
+    }
+    return new Maze(this, grid.copy());
+  }
+
+  /**
+   * makes a copy of this maze that shares nothing with it, not even its tile objects, e.g. to play
+   * a level from a template of it that must not change. Costs a copy of every tile object, which
+   * for a packed maze is only the tiles that aren't plain terrain.
+   *
+   * @return the copy, packed if this maze is packed
+   * @throws IllegalStateException if this maze is a pre-tick view or is in the middle of a tick
+   */
+  public Maze deepCopy() {
+    if (live != null || changes != null) {
+      throw new IllegalStateException("cannot copy a maze during a tick (Maze.deepCopy)");
+    }
+    return new Maze(this, grid.deepCopy());
   }
 
   //GETTERS:
@@ -65,7 +224,7 @@ public class Maze {
     for (int y = 0; y < height; y++) {
       r += y + "|";
       for (int x = 0; x < width; x++) {
-        r += tileArray[x][y].symbol() + "|";
+        r += tile(x, y).symbol() + "|";
       }
       r += "\n";
     }
@@ -84,33 +243,21 @@ public class Maze {
    * an exception will be thrown.</p>
    *
    * @return a copy of tile array (DEEP CLONE)
-   * @throws RuntimeException if any tile cannot be instantiated
+   * @throws RuntimeException if any tile cannot be instantiated (or is null)
    */
   public Tile[][] getTileArrayCopy() {
     Tile[][] copy = new Tile[width][height];
     IntStream.range(0, width)
         .forEach(x ->
             IntStream.range(0, height)
-                .forEach(y -> {
-                      Tile t = tileArray[x][y];
-                      try {
-                        copy[x][y] = t.getClass().getConstructor(TileInfo.class)
-                            .newInstance(t.info());
-                      } catch (NoSuchMethodException | InstantiationException
-                               | IllegalAccessException
-                               | java.lang.reflect.InvocationTargetException e) {
-                        throw new RuntimeException(
-                            "cannot initiate the tile class(with TileInfo()): "
-                                + t.getClass().getName());
-                      }
-                    }
-                )
+                .forEach(y -> copy[x][y] = TileType.copyTile(tile(x, y)))
         );
     return copy;
   }
 
   /**
-   * finds location of a given tile (exactly the same object).
+   * finds location of a given tile (exactly the same object, or for a terrain tile of a packed maze
+   * a tile of the same type and location).
    *
    * @param t tile object to find
    * @return loc of tile object if found, else null
@@ -122,7 +269,7 @@ public class Maze {
     }
     for (int x = 0; x < width - 1; x++) {
       for (int y = 0; y < height - 1; y++) {
-        if (t == tileArray[x][y]) {
+        if (holds(x, y, t)) {
           return new Loc(x, y);
         }
       }
@@ -131,17 +278,49 @@ public class Maze {
   }
 
   /**
-   * finds the number tiles with this tile type on this maze.
+   * finds the number tiles with this tile type on this maze. The count is kept up to date as tiles
+   * are set, so this only costs the cells changed in the current tick (on a pre-tick view).
    *
    * @param type to count
    * @return number of tiles with give type
    */
   public int getTileCount(TileType type) {
-    return (int) Arrays
-        .stream(tileArray)
-        .flatMap(Arrays::stream)
-        .filter(t -> t.type() == type)
-        .count();
+    int count = counts[type.ordinal()];
+    if (live == null || live.changes == null) {
+      return count;
+    }
+
+    //undo the changes made since the tick began
+    for (Map.Entry<Integer, Tile> change : live.changes.entrySet()) {
+      Tile before = change.getValue();
+      count += (before != null && before.type() == type ? 1 : 0)
+          - (liveTypeAtCell(change.getKey()) == type ? 1 : 0);
+    }
+    return count;
+  }
+
+  /**
+   * gets a hash of the tile types on the maze, which two mazes with the same tile type on every
+   * cell share. The hash is kept up to date as tiles are set, so this only costs the cells changed
+   * in the current tick (on a pre-tick view).
+   *
+   * @return hash of the tile type of every cell
+   */
+  public long stateHash() {
+    if (live == null) {
+      return hash;
+    }
+
+    //undo the changes made since the tick began
+    long h = live.hash;
+    if (live.changes != null) {
+      for (Map.Entry<Integer, Tile> change : live.changes.entrySet()) {
+        Tile before = change.getValue();
+        h ^= key(change.getKey(), liveTypeAtCell(change.getKey()))
+            ^ key(change.getKey(), before == null ? null : before.type());
+      }
+    }
+    return h;
   }
 
   /**
@@ -155,7 +334,7 @@ public class Maze {
    */
   public Tile getTileAt(int x, int y) {
     checkLocationIntegrity(new Loc(x, y));
-    return tileArray[x][y];
+    return tile(x, y);
   }
 
   /**
@@ -168,7 +347,24 @@ public class Maze {
    */
   public Tile getTileAt(Loc l) {
     checkLocationIntegrity(l);
-    return tileArray[l.x()][l.y()];
+    return tile(l.x(), l.y());
+  }
+
+  /**
+   * gets the type of the tile at the given x and y co ordinates, without making the tile on a
+   * packed maze.
+   *
+   * @param x x coord
+   * @param y y coord
+   * @return the type of the tile at the coords, null if the cell has no tile
+   * @throws IllegalArgumentException if the coords are out of the maze
+   */
+  public TileType getTileTypeAt(int x, int y) {
+    if (x < 0 || y < 0 || x >= width || y >= height) {
+      throw new IllegalArgumentException("Location out of bounds: x: " + x + " y: " + y
+          + " (Maze.getTileTypeAt)");
+    }
+    return type(x, y);
   }
 
   /**
@@ -178,9 +374,7 @@ public class Maze {
    * @return first tile that satisfies the predicate, or Null typed tile if none exist
    */
   public Tile getTileThat(Predicate<Tile> p) {
-    return Arrays
-        .stream(tileArray)
-        .flatMap(Arrays::stream)
+    return tiles()
         .filter(p)
         .findFirst()
         .orElse(new Null(new TileInfo(null)));
@@ -193,17 +387,108 @@ public class Maze {
    * @return list of all tiles that satisfy the predicate, otherwise an empty list
    */
   public List<Tile> getAllTilesThat(Predicate<Tile> p) {
-    return Arrays
-        .stream(tileArray)
-        .flatMap(Arrays::stream)
+    return tiles()
         .filter(p)
         .toList();
   }
 
+  /**
+   * gets the first tile of the given type, found through the tile type index rather than by
+   * scanning the maze.
+   *
+   * @param type type of tile to find
+   * @return first tile of the type, or Null typed tile if none exist
+   */
+  public Tile getTileOfType(TileType type) {
+    if (type == TileType.Hero && live == null) {
+      return hero != null ? hero : new Null(new TileInfo(null));
+    }
+    return cells(type).stream()
+        .findFirst()
+        .map(this::tileAtCell)
+        .orElse(new Null(new TileInfo(null)));
+  }
+
+  /**
+   * gets all the tiles of the given type, found through the tile type index rather than by scanning
+   * the maze.
+   *
+   * @param type type of tiles to find
+   * @return list of all tiles of the type, otherwise an empty list
+   */
+  public List<Tile> getAllTilesOfType(TileType type) {
+    return cells(type).stream()
+        .map(this::tileAtCell)
+        .toList();
+  }
+
+  /**
+   * finds location of the first tile of the given type, found through the tile type index rather
+   * than by scanning the maze.
+   *
+   * @param type type of tile to find
+   * @return loc of the tile if found, else null
+   */
+  public Loc getLocOfType(TileType type) {
+    return cells(type).stream()
+        .findFirst()
+        .map(i -> new Loc(i / height, i % height))
+        .orElse(null);
+  }
+
+  /**
+   * visits the cells of a window of the maze (e.g. the part of it on screen), column by column,
+   * without copying the maze or making the tiles of packed cells. the cost is the size of the
+   * window, not of the maze. cells of the window outside the maze are skipped, so the window may
+   * hang over the edges of the maze.
+   *
+   * @param left    x coord of the left column of the window
+   * @param top     y coord of the top row of the window
+   * @param cols    width of the window
+   * @param rows    height of the window
+   * @param visitor visitor given each cell in the window
+   * @throws IllegalArgumentException if the width or height of the window is negative
+   * @throws NullPointerException     if visitor is null
+   */
+  public void visitWindow(int left, int top, int cols, int rows, CellVisitor visitor) {
+    if (cols < 0 || rows < 0) {
+      throw new IllegalArgumentException("window size cannot be negative: " + cols + "x" + rows
+          + " (Maze.visitWindow)");
+    }
+    if (visitor == null) {
+      throw new NullPointerException("visitor cannot be null (Maze.visitWindow)");
+    }
+    int xEnd = (int) Math.min(width, (long) left + cols);
+    int yEnd = (int) Math.min(height, (long) top + rows);
+    for (int x = Math.max(0, left); x < xEnd; x++) {
+      for (int y = Math.max(0, top); y < yEnd; y++) {
+        visitor.visit(x, y, type(x, y));
+      }
+    }
+  }
+
+  /**
+   * a visitor of the cells of a window of the maze, see
+   * {@link #visitWindow(int, int, int, int, CellVisitor)}.
+   */
+  @FunctionalInterface
+  public interface CellVisitor {
+
+    /**
+     * visits a cell. the tile itself can be got with {@link #getTileAt(int, int)} if its type is
+     * not enough.
+     *
+     * @param x    x coord of the cell
+     * @param y    y coord of the cell
+     * @param type type of the tile at the cell, null if the cell has no tile
+     */
+    void visit(int x, int y, TileType type);
+  }
+
   //SETTERS and ACTIONS:
 
   /**
-   * pings all tiles in the maze.
+   * pings all tiles in the maze that do something when pinged.
    *
    * @param d - domain where the ping is taking place in (this is since the ping may affect
    *          inventory, level index, etc)
@@ -214,7 +499,69 @@ public class Maze {
       throw new NullPointerException("domain cannot be null in maze.pingMaze()");
     }
 
-    Arrays.stream(d.getCurrentMaze().tileArray).flatMap(Arrays::stream).forEach(t -> t.ping(d));
+    //tiles are read as the ping goes, so a tile moved further along is pinged again
+    //(cells whose tile does nothing when pinged are skipped)
+    Maze maze = d.getCurrentMaze();
+    for (Integer i = maze.active.ceiling(0); i != null; i = maze.active.higher(i)) {
+      maze.tileAtCell(i).ping(d);
+    }
+  }
+
+  /**
+   * <p>starts a tick on this maze. From now on the original tile of every cell that is changed is
+   * recorded, so the tick can be committed or rolled back by only visiting the changed cells.</p>
+   *
+   * <p>The returned view keeps showing the maze as it was when the tick began, this is what the
+   * integrity check compares the pinged maze against.</p>
+   *
+   * @return read only view of this maze as it is before the tick
+   * @throws IllegalStateException if this maze is a view, or a tick is already in progress
+   */
+  public Maze beginTick() {
+    if (live != null) {
+      throw new IllegalStateException("a pre-tick view cannot be ticked (Maze.beginTick)");
+    }
+    if (changes != null) {
+      throw new IllegalStateException("a tick is already in progress (Maze.beginTick)");
+    }
+
+    changes = new LinkedHashMap<Integer, Tile>();
+    return new Maze(this);
+  }
+
+  /**
+   * keeps all the changes made since the tick began, and stops recording changes.
+   *
+   * @throws IllegalStateException if no tick is in progress
+   */
+  public void commitTick() {
+    if (changes == null) {
+      throw new IllegalStateException("no tick is in progress (Maze.commitTick)");
+    }
+    changes = null;
+  }
+
+  /**
+   * puts the original tiles back on every cell changed since the tick began, and stops recording
+   * changes.
+   *
+   * @throws IllegalStateException if no tick is in progress
+   */
+  public void rollbackTick() {
+    if (changes == null) {
+      throw new IllegalStateException("no tick is in progress (Maze.rollbackTick)");
+    }
+    Map<Integer, Tile> original = changes;
+    changes = null;
+
+    original.forEach((i, t) -> {
+      int x = i / height;
+      int y = i % height;
+      put(x, y, t);
+      if (t != null) {
+        t.info().loc(new Loc(x, y));
+      }
+    });
   }
 
   /**
@@ -229,7 +576,7 @@ public class Maze {
     checkLocationIntegrity(loc);
 
     //make tile object from type enum and replace the tile at the location
-    tileArray[loc.x()][loc.y()] = TileType.makeTile(type, new TileInfo(loc));
+    place(loc.x(), loc.y(), TileType.makeTile(type, new TileInfo(loc)));
 
   }
 
@@ -249,7 +596,7 @@ public class Maze {
     checkLocationIntegrity(loc);
 
     //replace tile at location
-    tileArray[loc.x()][loc.y()] = tile;
+    place(loc.x(), loc.y(), tile);
 
     //update tile info
     tile.info().loc(loc);
@@ -257,6 +604,248 @@ public class Maze {
 
   //HELPERS
 
+  /**
+   * gets the tile at the given co ordinates without any checks, a view gets the tile the cell had
+   * before the tick began.
+   *
+   * @param x x coord
+   * @param y y coord
+   * @return the tile at the coords
+   */
+  private Tile tile(int x, int y) {
+    if (live != null && live.changes != null) {
+      Tile before = live.changes.get(x * height + y);
+      if (before != null) {
+        return before;
+      }
+    }
+    return grid.get(x, y);
+  }
+
+  /**
+   * finds out if a tile is the tile at the given co ordinates, a view compares it to the tile the
+   * cell had before the tick began.
+   *
+   * @param x x coord
+   * @param y y coord
+   * @param t tile to compare
+   * @return true if the tile is the tile at the coords
+   */
+  private boolean holds(int x, int y, Tile t) {
+    if (live != null && live.changes != null && live.changes.get(x * height + y) != null) {
+      return live.changes.get(x * height + y) == t;
+    }
+    return grid.holds(x, y, t);
+  }
+
+  /**
+   * gets the type of the tile at the given co ordinates without making the tile, a view gets the
+   * type of the tile the cell had before the tick began.
+   *
+   * @param x x coord
+   * @param y y coord
+   * @return the type of the tile at the coords, null if there is no tile
+   */
+  private TileType type(int x, int y) {
+    if (live != null && live.changes != null) {
+      Tile before = live.changes.get(x * height + y);
+      if (before != null) {
+        return before.type();
+      }
+    }
+    return grid.typeAt(x, y);
+  }
+
+  /**
+   * gets the tile of the given cell index without any checks.
+   *
+   * @param i cell index
+   * @return the tile at the cell
+   */
+  private Tile tileAtCell(int i) {
+    return tile(i / height, i % height);
+  }
+
+  /**
+   * gets the type of the tile the given cell index has now, ignoring any tick.
+   *
+   * @param i cell index
+   * @return the type of the tile at the cell, null if there is no tile
+   */
+  private TileType liveTypeAtCell(int i) {
+    return grid.typeAt(i / height, i % height);
+  }
+
+  /**
+   * gets the cell indexes of all the tiles of a type in scan order. A view adjusts the live index
+   * by the cells changed since the tick began.
+   *
+   * @param type tile type
+   * @return sorted cell indexes of the tiles of the type
+   */
+  private Collection<Integer> cells(TileType type) {
+    if (!isIndexed(type)) {
+      return IntStream.range(0, width * height)
+          .filter(i -> type(i / height, i % height) == type)
+          .boxed()
+          .toList();
+    }
+    if (live == null || live.changes == null) {
+      return index.get(type);
+    }
+
+    TreeSet<Integer> cells = new TreeSet<Integer>(index.get(type));
+    live.changes.forEach((i, before) -> {
+      if (liveTypeAtCell(i) == type) {
+        cells.remove(i);
+      }
+      if (before != null && before.type() == type) {
+        cells.add(i);
+      }
+    });
+    return cells;
+  }
+
+  /**
+   * finds out if a tile does something when pinged, that is if its class overrides the default
+   * (empty) ping of a tile.
+   *
+   * @param tile tile to check (may be null)
+   * @return true if the tile's class has its own ping
+   */
+  private static boolean isPingable(Tile tile) {
+    return tile != null && pingable.get(tile.getClass());
+  }
+
+  /**
+   * finds out if the cells of a tile type are kept in the index.
+   *
+   * @param type tile type
+   * @return true if the type is indexed
+   */
+  private static boolean isIndexed(TileType type) {
+    return type != TileType.Floor && type != TileType.Wall;
+  }
+
+  /**
+   * gets the random key of a tile type on a cell, made by mixing the two rather than kept in a
+   * table, so very large mazes don't need one.
+   *
+   * @param i    cell index
+   * @param type tile type (null if the cell has no tile)
+   * @return key of the type on the cell, 0 if there is no tile
+   */
+  private static long key(int i, TileType type) {
+    return type == null ? 0 : mix(((long) i * TYPES + type.ordinal() + 1) * 0x9e3779b97f4a7c15L);
+  }
+
+  /**
+   * scrambles a number into a random looking one (the finaliser of SplitMix64), the same number
+   * always gives the same result.
+   *
+   * @param z number to scramble
+   * @return scrambled number
+   */
+  static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * adds a cell to the index under the type of its tile, and counts the tile.
+   *
+   * @param x    x coord
+   * @param y    y coord
+   * @param type type of the tile of the cell (null if the cell has no tile)
+   */
+  private void addToIndex(int x, int y, TileType type) {
+    if (type == null) {
+      return;
+    }
+    hash ^= key(x * height + y, type);
+    counts[type.ordinal()]++;
+    if (!isIndexed(type)) {
+      return;
+    }
+    index.get(type).add(x * height + y);
+    if (type == TileType.Hero) {
+      hero = tileAtCell(index.get(TileType.Hero).first());
+    }
+  }
+
+  /**
+   * removes a cell from the index under the type of its tile, and stops counting the tile.
+   *
+   * @param x    x coord
+   * @param y    y coord
+   * @param type type of the tile of the cell (null if the cell has no tile)
+   */
+  private void removeFromIndex(int x, int y, TileType type) {
+    if (type == null) {
+      return;
+    }
+    hash ^= key(x * height + y, type);
+    counts[type.ordinal()]--;
+    if (!isIndexed(type)) {
+      return;
+    }
+    TreeSet<Integer> cells = index.get(type);
+    cells.remove(x * height + y);
+    if (type == TileType.Hero) {
+      hero = cells.isEmpty() ? null : tileAtCell(cells.first());
+    }
+  }
+
+  /**
+   * streams all the tiles of the maze, column by column.
+   *
+   * @return stream of all tiles
+   */
+  private Stream<Tile> tiles() {
+    return IntStream.range(0, width)
+        .boxed()
+        .flatMap(x -> IntStream.range(0, height).mapToObj(y -> tile(x, y)));
+  }
+
+  /**
+   * every change of a cell goes through here, it records the cell's original tile if a tick is in
+   * progress.
+   *
+   * @param x    x coord
+   * @param y    y coord
+   * @param tile new tile of the cell
+   * @throws IllegalStateException if this maze is a read only view
+   */
+  private void place(int x, int y, Tile tile) {
+    if (live != null) {
+      throw new IllegalStateException("a pre-tick view is read only (Maze.setTileAt)");
+    }
+    if (changes != null && !changes.containsKey(x * height + y)) {
+      changes.put(x * height + y, grid.get(x, y));
+    }
+    put(x, y, tile);
+  }
+
+  /**
+   * writes a tile into a cell, keeping the tile type index up to date.
+   *
+   * @param x    x coord
+   * @param y    y coord
+   * @param tile new tile of the cell
+   */
+  private void put(int x, int y, Tile tile) {
+    removeFromIndex(x, y, grid.typeAt(x, y));
+    grid.set(x, y, tile);
+    addToIndex(x, y, tile == null ? null : tile.type());
+
+    if (isPingable(tile)) {
+      active.add(x * height + y);
+    } else {
+      active.remove(x * height + y);
+    }
+  }
+
   /**
    * helper class that throws an exception if the location is out of bounds or null.
    *
@@ -0,0 +1,72 @@
+package nz.ac.vuw.ecs.swen225.gp6.domain;
+
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.Tile;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.TileType;
+
+/**
+ * A grid that holds a tile object for every cell, in a 2d array of tiles.
+ *
+ * @author Name: Mahdi Najafi ID: 300606634
+ */
+final class ObjectGrid implements Grid {
+
+  private final Tile[][] tileArray;
+  private final int cells; //number of cells in the grid
+
+  /**
+   * makes a grid backed by the given tile array (not copied).
+   *
+   * @param tileArray 2d array of tiles, indexed by x then y
+   */
+  ObjectGrid(Tile[][] tileArray) {
+    this.tileArray = tileArray;
+    this.cells = tileArray.length * tileArray[0].length;
+  }
+
+  @Override
+  public Tile get(int x, int y) {
+    return tileArray[x][y];
+  }
+
+  @Override
+  public TileType typeAt(int x, int y) {
+    Tile tile = tileArray[x][y];
+    return tile == null ? null : tile.type();
+  }
+
+  @Override
+  public void set(int x, int y, Tile tile) {
+    tileArray[x][y] = tile;
+  }
+
+  @Override
+  public boolean holds(int x, int y, Tile tile) {
+    return tileArray[x][y] == tile;
+  }
+
+  @Override
+  public int nextPinged(int from) {
+    return from < cells ? from : -1; //any tile may be pinged
+  }
+
+  @Override
+  public Grid copy() {
+    Tile[][] copy = new Tile[tileArray.length][];
+    for (int x = 0; x < tileArray.length; x++) {
+      copy[x] = tileArray[x].clone();
+    }
+    return new ObjectGrid(copy);
+  }
+
+  @Override
+  public Grid deepCopy() {
+    Tile[][] copy = new Tile[tileArray.length][tileArray[0].length];
+    for (int x = 0; x < tileArray.length; x++) {
+      for (int y = 0; y < tileArray[x].length; y++) {
+        Tile tile = tileArray[x][y];
+        copy[x][y] = tile == null ? null : TileType.deepCopyTile(tile);
+      }
+    }
+    return new ObjectGrid(copy);
+  }
+}
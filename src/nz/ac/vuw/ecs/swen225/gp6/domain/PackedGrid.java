@@ -0,0 +1,159 @@
+package nz.ac.vuw.ecs.swen225.gp6.domain;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.Tile;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.TileInfo;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.TileType;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.BlueLock;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.Empty;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.ExitDoor;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.Floor;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.GreenLock;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.OrangeLock;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.Periphery;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.Wall;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.YellowLock;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Utility.Direction;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Utility.Loc;
+
+/**
+ * <p>A grid that keeps the tile type of every cell in one byte, for very large mazes.</p>
+ *
+ * <p>Only plain terrain is packed: tiles of the preset terrain classes that have no state of their
+ * own (nothing in their tile info but their location), which is everything the maze is mostly made
+ * of. These tiles are made again whenever they are asked for. Every other tile (hero, items, info,
+ * custom tiles...) is kept as it is in a sparse table.</p>
+ *
+ * @author Name: Mahdi Najafi ID: 300606634
+ */
+final class PackedGrid implements Grid {
+
+  private static final byte NO_TILE = -1; //type of a cell with no tile
+
+  //tile types that can be packed, and the exact class their tiles must have to be packed
+  //(none of them do anything when pinged)
+  private static final Map<TileType, Class<? extends Tile>> packable =
+      new EnumMap<TileType, Class<? extends Tile>>(TileType.class);
+
+  static {
+    packable.put(TileType.Floor, Floor.class);
+    packable.put(TileType.Wall, Wall.class);
+    packable.put(TileType.ExitDoor, ExitDoor.class);
+    packable.put(TileType.BlueLock, BlueLock.class);
+    packable.put(TileType.GreenLock, GreenLock.class);
+    packable.put(TileType.OrangeLock, OrangeLock.class);
+    packable.put(TileType.YellowLock, YellowLock.class);
+    packable.put(TileType.Empty, Empty.class);
+    packable.put(TileType.Periphery, Periphery.class);
+  }
+
+  private final int height;
+  private final byte[] types; //tile type ordinal of every cell, by cell index
+  private final TreeMap<Integer, Tile> sparse; //tiles that are not packed, by cell index
+
+  /**
+   * makes a grid with every cell a floor.
+   *
+   * @param width  width of the grid
+   * @param height height of the grid
+   */
+  PackedGrid(int width, int height) {
+    this.height = height;
+    this.types = new byte[width * height];
+    this.sparse = new TreeMap<Integer, Tile>();
+    Arrays.fill(types, (byte) TileType.Floor.ordinal());
+  }
+
+  /**
+   * makes a grid from the cells of another.
+   *
+   * @param height height of the grid
+   * @param types  tile type ordinal of every cell (not copied)
+   * @param sparse tiles that are not packed (not copied)
+   */
+  private PackedGrid(int height, byte[] types, TreeMap<Integer, Tile> sparse) {
+    this.height = height;
+    this.types = types;
+    this.sparse = sparse;
+  }
+
+  @Override
+  public Tile get(int x, int y) {
+    int i = x * height + y;
+    Tile tile = sparse.get(i);
+    if (tile != null || types[i] == NO_TILE) {
+      return tile;
+    }
+    return TileType.makeTile(TileType.values()[types[i]], new TileInfo(new Loc(x, y)));
+  }
+
+  @Override
+  public TileType typeAt(int x, int y) {
+    byte type = types[x * height + y];
+    return type == NO_TILE ? null : TileType.values()[type];
+  }
+
+  @Override
+  public void set(int x, int y, Tile tile) {
+    int i = x * height + y;
+    if (tile == null) {
+      sparse.remove(i);
+      types[i] = NO_TILE;
+      return;
+    }
+
+    types[i] = (byte) tile.type().ordinal();
+    if (isPackable(tile)) {
+      sparse.remove(i);
+    } else {
+      sparse.put(i, tile);
+    }
+  }
+
+  @Override
+  public boolean holds(int x, int y, Tile tile) {
+    int i = x * height + y;
+    if (sparse.containsKey(i)) {
+      return sparse.get(i) == tile;
+    }
+    return types[i] != NO_TILE && types[i] == tile.type().ordinal() && isPackable(tile)
+        && new Loc(x, y).equals(tile.info().loc());
+  }
+
+  @Override
+  public int nextPinged(int from) {
+    Integer i = sparse.ceilingKey(from);
+    return i == null ? -1 : i;
+  }
+
+  @Override
+  public Grid copy() {
+    return new PackedGrid(height, types.clone(), new TreeMap<Integer, Tile>(sparse));
+  }
+
+  @Override
+  public Grid deepCopy() {
+    TreeMap<Integer, Tile> copy = new TreeMap<Integer, Tile>();
+    sparse.forEach((i, tile) -> copy.put(i, TileType.deepCopyTile(tile)));
+    return new PackedGrid(height, types.clone(), copy);
+  }
+
+  /**
+   * finds out if a tile can be packed into its type, so making it again gives an equal tile.
+   *
+   * @param tile tile to check
+   * @return true if the tile is plain terrain, with nothing but its location in its tile info
+   */
+  private static boolean isPackable(Tile tile) {
+    TileInfo info = tile.info();
+    return packable.get(tile.type()) == tile.getClass()
+        && info.ping() == 0
+        && "".equals(info.getImageName())
+        && "".equals(info.message())
+        && info.facing() == Direction.None
+        && info.tileOn() == null;
+  }
+}
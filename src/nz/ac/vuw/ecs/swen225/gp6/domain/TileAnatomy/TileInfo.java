@@ -119,6 +119,20 @@ public class TileInfo {
     return facing;
   }
 
+  /**
+   * makes a copy of the information that shares nothing with it: the location and the tile it is
+   * on are copied too, so a tile made from the copy can change without changing the original.
+   *
+   * @return the copy
+   */
+  public TileInfo copy() {
+    TileInfo copy = new TileInfo(loc == null ? null : new Loc(loc.x(), loc.y()), ping, imageName,
+        message);
+    copy.facing = facing;
+    copy.tileOn = tileOn == null ? null : TileType.deepCopyTile(tileOn);
+    return copy;
+  }
+
   //SETTERS
 
   /**
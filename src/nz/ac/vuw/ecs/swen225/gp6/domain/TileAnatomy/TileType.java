@@ -1,73 +1,108 @@
 package nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy;
 
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
+import java.util.function.Function;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.BlueKey;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.BlueLock;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.Coin;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.Empty;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.ExitDoor;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.ExitDoorOpen;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.Floor;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.GreenKey;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.GreenLock;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.Hero;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.Info;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.Null;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.OrangeKey;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.OrangeLock;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.Periphery;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.Wall;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.YellowKey;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.YellowLock;
 
 
 /**
  * Each tile object will have a type field, which helps to determine what the tile is. Note1: Any
  * tile class that to be implemented in game(in compile time), must be in tiles folder and the class
  * file must have the same name as its enum type. Note2: Any tiles that are added to the game at run
- * time will have the type "Other".
+ * time will have the type "Other". Note3: each preset tile type holds the constructor of its class,
+ * so making a tile is a direct call rather than a reflective lookup.
  *
  * @author Name: Mahdi Najafi ID: 300606634
  */
 public enum TileType {
   //ACTORS:
-  Hero('H'),
+  Hero('H', Hero::new),
 
   //STATIC TERRAINS:
-  Floor('_'),
+  Floor('_', Floor::new),
 
-  Wall('/'),
+  Wall('/', Wall::new),
 
   //INTERACTIVE TERRAINS:
-  Info('i'),
+  Info('i', Info::new),
 
-  ExitDoor('X'),
+  ExitDoor('X', ExitDoor::new),
 
-  ExitDoorOpen('Z'),
+  ExitDoorOpen('Z', ExitDoorOpen::new),
 
-  BlueLock('B'),
+  BlueLock('B', BlueLock::new),
 
-  GreenLock('G'),
+  GreenLock('G', GreenLock::new),
 
-  OrangeLock('O'),
+  OrangeLock('O', OrangeLock::new),
 
-  YellowLock('Y'),
+  YellowLock('Y', YellowLock::new),
 
   //PICKABLES(ITEMS):
-  BlueKey('b'),
+  BlueKey('b', BlueKey::new),
 
-  GreenKey('g'),
+  GreenKey('g', GreenKey::new),
 
-  OrangeKey('o'),
+  OrangeKey('o', OrangeKey::new),
 
-  YellowKey('y'),
+  YellowKey('y', YellowKey::new),
 
-  Coin('$'),
+  Coin('$', Coin::new),
 
   //SPECIAL:
-  Empty(' '), //used ONLY in inventory
+  Empty(' ', Empty::new), //used ONLY in inventory
 
-  Periphery('*'), //used to draw the peripheries of the maze(out of bound areas)
+  Periphery('*', Periphery::new), //used to draw the peripheries of the maze(out of bound areas)
 
-  Other('?'), //used for tiles that are implemented at run time and such
+  Other('?', null), //used for tiles that are implemented at run time and such
   //feeding this into makeTile method will cause an IllegalArgumentException
 
-  Null(Character.MIN_VALUE); //used to represent null tiles
+  Null(Character.MIN_VALUE, Null::new); //used to represent null tiles
 
   //FIELDS:
   private final char symbol;
+  private final Function<TileInfo, Tile> factory; //constructor of the tile class (null for Other)
+
+  //constructors of tile classes, found once per class (used to copy tiles of any class, even
+  //custom ones), kept with the class so classes of unloaded custom tiles are not held on to
+  private static final ClassValue<Function<TileInfo, Tile>> factories =
+      new ClassValue<Function<TileInfo, Tile>>() {
+        @Override
+        protected Function<TileInfo, Tile> computeValue(Class<?> c) {
+          return findFactory(c);
+        }
+      };
 
   //CONSTRUCTOR:
 
   /**
-   * Each tile will have a char symbol for debugging and testing.
+   * Each tile will have a char symbol for debugging and testing, and the constructor of its class.
    *
-   * @param symbol - the char symbol for the tile
+   * @param symbol  - the char symbol for the tile
+   * @param factory - the constructor of the tile class, null if there is no preset class
    */
-  TileType(char symbol) {
+  TileType(char symbol, Function<TileInfo, Tile> factory) {
     this.symbol = symbol;
+    this.factory = factory;
   }
 
   //METHODS:
@@ -88,14 +123,89 @@ public enum TileType {
     if (t == null || info == null) {
       throw new NullPointerException("tile type or tile info cannot be null (TileType.makeTile)");
     }
-    try {
-      Class<?> c = Class.forName("nz.ac.vuw.ecs.swen225.gp6.domain.Tiles." + t.name());
-      return (Tile) c.getDeclaredConstructor(TileInfo.class).newInstance(info);
-    } catch (NoSuchMethodException | SecurityException | ClassNotFoundException
-             | InstantiationException | IllegalAccessException
-             | IllegalArgumentException | java.lang.reflect.InvocationTargetException e) {
+    if (t.factory == null) {
       throw new IllegalArgumentException("There isn't a class for tile type: " + t.name());
     }
+    return t.factory.apply(info);
+  }
+
+  /**
+   * makes a new tile of the same class as the given tile, sharing its tile info. Works for any tile
+   * class with a constructor that takes a TileInfo, including custom tiles.
+   *
+   * @param t tile to copy
+   * @return a new instance of the tile's class
+   * @throws NullPointerException if t is null
+   * @throws RuntimeException     if the tile class cannot be instantiated with a TileInfo
+   */
+  public static Tile copyTile(Tile t) {
+    return factoryOf(t.getClass()).apply(t.info());
+  }
+
+  /**
+   * makes a new tile of the same class as the given tile, with a copy of its tile info (see
+   * {@link TileInfo#copy()}), so the new tile shares nothing with the given one.
+   *
+   * @param t tile to copy
+   * @return a new instance of the tile's class
+   * @throws NullPointerException if t is null
+   * @throws RuntimeException     if the tile class cannot be instantiated with a TileInfo
+   */
+  public static Tile deepCopyTile(Tile t) {
+    return factoryOf(t.getClass()).apply(t.info().copy());
+  }
+
+  /**
+   * gets the constructor of a tile class as a function. Preset tile classes use the constructor
+   * held by their tile type, any other class has its constructor found once and then reused. Custom
+   * tile classes should be registered through here when they are loaded.
+   *
+   * @param c tile class
+   * @return function that makes a new instance of the class from a TileInfo
+   * @throws NullPointerException if c is null
+   * @throws RuntimeException     if the tile class has no public constructor taking a TileInfo
+   */
+  public static Function<TileInfo, Tile> factoryOf(Class<? extends Tile> c) {
+    if (c == null) {
+      throw new NullPointerException("tile class cannot be null (TileType.factoryOf)");
+    }
+    return factories.get(c);
+  }
+
+  /**
+   * finds the constructor of a tile class, from its tile type if it's a preset tile class.
+   *
+   * @param c tile class
+   * @return function that makes a new instance of the class from a TileInfo
+   * @throws RuntimeException if the tile class has no public constructor taking a TileInfo
+   */
+  private static Function<TileInfo, Tile> findFactory(Class<?> c) {
+    //preset tiles have the same name as their type
+    if (c.getPackage() == Floor.class.getPackage()) {
+      TileType t = Arrays.stream(values())
+          .filter(type -> type.name().equals(c.getSimpleName()))
+          .findFirst()
+          .orElse(Other);
+      if (t.factory != null) {
+        return t.factory;
+      }
+    }
+
+    try {
+      Constructor<?> ctor = c.getConstructor(TileInfo.class);
+      return info -> {
+        try {
+          return (Tile) ctor.newInstance(info);
+        } catch (InstantiationException | IllegalAccessException
+                 | InvocationTargetException e) {
+          throw new RuntimeException("cannot initiate the tile class(with TileInfo()): "
+              + c.getName(), e);
+        }
+      };
+    } catch (NoSuchMethodException | SecurityException e) {
+      throw new RuntimeException("cannot initiate the tile class(with TileInfo()): "
+          + c.getName());
+    }
   }
 
   /**
@@ -48,7 +48,7 @@ public class Coin extends Item {
     //if all treasures collected replace exitdoor with open exit door
     if (d.getTreasuresLeft() == 0) {
       //find exit door and replace it with open exit door
-      Tile exitDoor = d.getCurrentMaze().getTileThat(tile -> tile.type() == TileType.ExitDoor);
+      Tile exitDoor = d.getCurrentMaze().getTileOfType(TileType.ExitDoor);
       d.getCurrentMaze().setTileAt(exitDoor.info().loc(), TileType.ExitDoorOpen);
     }
   }
@@ -60,6 +60,10 @@ public final class AppPersistency {
     Element viewDistance = root.addElement("viewDistance");
     viewDistance.setText(Integer.toString(config.getViewDistance()));
 
+    // add tick rate
+    Element tickRate = root.addElement("tickRate");
+    tickRate.setText(Double.toString(config.getTickRate()));
+
     return root;
   }
 
@@ -91,7 +95,15 @@ public final class AppPersistency {
     // get view distance
     Integer viewDistance = Integer.parseInt(root.element("viewDistance").getText());
 
-    return new Configuration(musicEnabled, texturePack, viewDistance, keyBindings);
+    Configuration config = new Configuration(musicEnabled, texturePack, viewDistance, keyBindings);
+
+    // get tick rate, left at the default by files saved before it was configurable
+    Element tickRate = root.element("tickRate");
+    if (tickRate != null) {
+      config.setTickRate(Double.parseDouble(tickRate.getText()));
+    }
+
+    return config;
   }
 
   /**
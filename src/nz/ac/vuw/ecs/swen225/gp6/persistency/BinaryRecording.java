@@ -0,0 +1,295 @@
+package nz.ac.vuw.ecs.swen225.gp6.persistency;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Actions;
+import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Pair;
+import nz.ac.vuw.ecs.swen225.gp6.persistency.BinarySave.Out;
+import nz.ac.vuw.ecs.swen225.gp6.persistency.RecorderPersistency.CheckpointSink;
+import nz.ac.vuw.ecs.swen225.gp6.persistency.RecorderPersistency.TimelineSink;
+
+/**
+ * <p>Reads and writes the compact binary recording format. A recording is laid out as a header
+ * (the magic number, the format version, the names of the actions in the order of the codes used
+ * for them, a flags byte, the number of actions, the length of the body and the checkpoints), then
+ * the body: one variable length integer per action, holding the change in tick number since the
+ * action before it (zig zag encoded, as recordings made before ticks were counted are stamped with
+ * the game time, which goes back at the start of each level) with the action's code packed into
+ * its low bits. Each checkpoint is the change in tick since the checkpoint before it, then the hash
+ * as it is.</p>
+ *
+ * <p>Long recordings have their body compressed as one Deflate block, as the same few gaps and
+ * actions come up over and over. The body is decoded straight into a sink, one action at a time,
+ * without making a list of the actions first.</p>
+ *
+ * @author Benjamin Hong - 300605520
+ */
+final class BinaryRecording {
+
+  private static final int MAGIC = 0x43485243; // "CHRC"
+  private static final short VERSION = 2; // version 1 had no checkpoints
+  private static final int DEFLATED = 1; // flag set when the body is compressed
+  private static final int TICKS = 2; // flag set when actions are stamped with tick numbers
+  private static final int DEFLATE_ACTIONS = 64; // shorter recordings are not worth compressing
+  private static final int MAX_VARLONG = 10; // bytes in the longest variable length long
+
+  /**
+   * A private constructor to prevent instantiation.
+   */
+  private BinaryRecording() {
+  }
+
+  /**
+   * Writes a recording to a file in the binary format.
+   *
+   * @param timeline    The actions, with the tick they were performed on, in order
+   * @param checkpoints The hashes of the state of the game, with the tick they were taken on, in
+   *                    order
+   * @param path        The file to write to
+   * @throws IOException If the file could not be written
+   */
+  static void write(List<Pair<Long, Actions>> timeline, List<Pair<Long, Long>> checkpoints,
+      Path path) throws IOException {
+    Actions[] actions = Actions.values();
+    int bits = codeBits(actions.length);
+
+    ByteBuffer body = ByteBuffer.allocate(timeline.size() * MAX_VARLONG);
+    long last = 0;
+    for (Pair<Long, Actions> pair : timeline) {
+      putVarlong(body, pack(pair.key() - last, pair.value(), bits));
+      last = pair.key();
+    }
+    body.flip();
+    int length = body.remaining();
+
+    int flags = TICKS;
+    if (timeline.size() >= DEFLATE_ACTIONS) {
+      Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+      deflater.setInput(body);
+      deflater.finish();
+      ByteBuffer deflated = ByteBuffer.allocate(length + 64);
+      while (!deflater.finished() && deflated.hasRemaining()) {
+        deflater.deflate(deflated);
+      }
+      boolean smaller = deflater.finished() && deflated.position() < length;
+      deflater.end();
+      if (smaller) {
+        flags |= DEFLATED;
+        body = deflated.flip();
+      } else {
+        body.rewind();
+      }
+    }
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      Out out = new Out(channel);
+      out.putInt(MAGIC);
+      out.putShort(VERSION);
+      writeActions(out);
+      out.putByte(flags);
+      out.putVarint(timeline.size());
+      out.putVarint(length);
+      out.putVarint(checkpoints.size());
+      long tick = 0;
+      for (Pair<Long, Long> checkpoint : checkpoints) {
+        out.putVarint(Math.toIntExact(checkpoint.key() - tick));
+        out.putLong(checkpoint.value());
+        tick = checkpoint.key();
+      }
+      out.flush();
+      while (body.hasRemaining()) {
+        channel.write(body);
+      }
+      channel.force(true);
+    }
+  }
+
+  /**
+   * Reads a recording from a file in the binary format, handing each action to a sink in order.
+   *
+   * @param path        The file to read from
+   * @param sink        Where to put the actions
+   * @param checkpoints Where to put the checkpoints
+   * @return True if the actions are stamped with tick numbers, false if with game times
+   * @throws IOException If the file could not be read, or is not a valid recording
+   */
+  static boolean read(Path path, TimelineSink sink, CheckpointSink checkpoints)
+      throws IOException {
+    ByteBuffer in;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Recording is too large: " + path);
+      }
+      in = ByteBuffer.allocate((int) size);
+      while (in.hasRemaining() && channel.read(in) >= 0) {
+        // keep reading until the buffer is full
+      }
+      in.flip();
+    }
+
+    try {
+      if (in.getInt() != MAGIC) {
+        throw new IOException("Not a binary recording: " + path);
+      }
+      short version = in.getShort();
+      if (version < 1 || version > VERSION) {
+        throw new IOException("Unsupported recording version " + version + ": " + path);
+      }
+      Actions[] actions = readActions(in);
+      int bits = codeBits(actions.length);
+      int flags = in.get();
+      int count = BinarySave.getVarint(in);
+      int length = BinarySave.getVarint(in);
+      int checkpointCount = version >= 2 ? BinarySave.getVarint(in) : 0;
+      long tick = 0;
+      for (int i = 0; i < checkpointCount; i++) {
+        tick += BinarySave.getVarint(in);
+        checkpoints.add(tick, in.getLong());
+      }
+
+      ByteBuffer body = in;
+      if ((flags & DEFLATED) != 0) {
+        body = ByteBuffer.allocate(length);
+        Inflater inflater = new Inflater();
+        try {
+          inflater.setInput(in);
+          while (!inflater.finished()) {
+            if (inflater.inflate(body) == 0 && (inflater.needsInput()
+                || inflater.needsDictionary() || !body.hasRemaining())) {
+              throw new IOException("Recording body is cut short: " + path);
+            }
+          }
+          if (body.hasRemaining()) {
+            throw new IOException("Recording body is cut short: " + path);
+          }
+        } finally {
+          inflater.end();
+        }
+        body.flip();
+      }
+
+      long time = 0;
+      long mask = (1L << bits) - 1;
+      for (int i = 0; i < count; i++) {
+        long value = getVarlong(body);
+        time += unpackDelta(value, bits);
+        sink.add(time, actions[(int) (value & mask)]);
+      }
+      return (flags & TICKS) != 0;
+    } catch (BufferUnderflowException | IllegalArgumentException
+             | IndexOutOfBoundsException | DataFormatException e) {
+      throw new IOException("Corrupt binary recording: " + path, e);
+    }
+  }
+
+  /**
+   * Writes the names of the actions, in the order of the codes used for them.
+   *
+   * @param out Where to write them
+   * @throws IOException If they could not be written
+   */
+  static void writeActions(Out out) throws IOException {
+    Actions[] actions = Actions.values();
+    out.putVarint(actions.length);
+    for (Actions action : actions) {
+      out.putString(action.name());
+    }
+  }
+
+  /**
+   * Reads the names of the actions written by {@link #writeActions(Out)}.
+   *
+   * @param in Where to read them from
+   * @return The actions, by their codes
+   * @throws IllegalArgumentException If an action does not exist
+   */
+  static Actions[] readActions(ByteBuffer in) {
+    Actions[] actions = new Actions[BinarySave.getVarint(in)];
+    for (int i = 0; i < actions.length; i++) {
+      actions[i] = Actions.valueOf(BinarySave.getString(in));
+    }
+    return actions;
+  }
+
+  /**
+   * Gets the number of low bits the action codes are packed into.
+   *
+   * @param actions The number of actions
+   * @return The number of bits
+   */
+  static int codeBits(int actions) {
+    return actions <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(actions - 1);
+  }
+
+  /**
+   * Packs the change in time since the last action, zig zag encoded, and the code of an action into
+   * one long.
+   *
+   * @param delta  The change in time
+   * @param action The action
+   * @param bits   The number of low bits for the action code
+   * @return The packed long
+   * @throws IOException If the change in time is too large to pack
+   */
+  static long pack(long delta, Actions action, int bits) throws IOException {
+    long zigzag = (delta << 1) ^ (delta >> 63);
+    if (bits > 0 && zigzag >>> (64 - bits) != 0) {
+      throw new IOException("Time between actions is too long to record: " + delta);
+    }
+    return zigzag << bits | action.ordinal();
+  }
+
+  /**
+   * Gets the change in time from a long made by {@link #pack(long, Actions, int)}.
+   *
+   * @param value The packed long
+   * @param bits  The number of low bits for the action code
+   * @return The change in time
+   */
+  static long unpackDelta(long value, int bits) {
+    long zigzag = value >>> bits;
+    return (zigzag >>> 1) ^ -(zigzag & 1);
+  }
+
+  /**
+   * Puts a variable length long, seven bits per byte with the high bit set on all but the last.
+   *
+   * @param out   Where to put it
+   * @param value The value to put
+   */
+  static void putVarlong(ByteBuffer out, long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.put((byte) value);
+  }
+
+  /**
+   * Reads a variable length long, in the form putVarlong puts.
+   *
+   * @param in Where to read from
+   * @return The long
+   */
+  static long getVarlong(ByteBuffer in) {
+    long value = 0;
+    for (int shift = 0; shift < 70; shift += 7) {
+      byte b = in.get();
+      value |= (b & 0x7FL) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Variable length long is too long");
+  }
+}
@@ -0,0 +1,503 @@
+package nz.ac.vuw.ecs.swen225.gp6.persistency;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Domain;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Domain.GameState;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Inventory;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Level;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Maze;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.Tile;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.TileInfo;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.TileType;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Utility.Direction;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Utility.Loc;
+
+/**
+ * <p>Reads and writes the compact binary save format, a much smaller and faster alternative to the
+ * XML saves. A save is laid out as:</p>
+ * <ul>
+ *   <li>a header: the magic number, the format version, and the names of the tile types in the
+ *   order of the codes used for them in the rest of the file</li>
+ *   <li>the state of the game, its tick number, the current level and the number of levels</li>
+ *   <li>for each level: its number, time limit, current time and hero direction, its width and
+ *   height, the type of every cell as runs of one type, a side table for the cells whose tiles
+ *   need more than their type (info and custom tiles), and the inventory</li>
+ * </ul>
+ * <p>Counts and lengths are written as variable length integers, and strings as UTF-8. The same
+ * tiles are restored as from the XML saves (e.g. cells with no tile are saved as floors).</p>
+ *
+ * @author Benjamin Hong - 300605520
+ */
+final class BinarySave {
+
+  private static final int MAGIC = 0x43484150; // "CHAP"
+  private static final short VERSION = 2; // version 1 had no tick number
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /**
+   * A private constructor to prevent instantiation.
+   */
+  private BinarySave() {
+  }
+
+  /**
+   * Writes a domain to a file in the binary format.
+   *
+   * @param domain The domain to write
+   * @param path   The file to write to
+   * @throws IOException If the file could not be written
+   */
+  static void write(Domain domain, Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      Out out = new Out(channel);
+      out.putInt(MAGIC);
+      out.putShort(VERSION);
+      writeTypes(out);
+
+      out.putString(domain.getGameState().name());
+      out.putLong(domain.getTick());
+      out.putVarint(domain.getCurrentLevel());
+      List<Level> levels = domain.getLevels();
+      out.putVarint(levels.size());
+      for (Level level : levels) {
+        writeLevel(level, out);
+      }
+      out.flush();
+      channel.force(true);
+    }
+  }
+
+  /**
+   * Reads a domain from a file in the binary format.
+   *
+   * @param path The file to read from
+   * @return The domain read
+   * @throws IOException If the file could not be read, or is not a valid save
+   */
+  static Domain read(Path path) throws IOException {
+    ByteBuffer in;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Save file is too large: " + path);
+      }
+      in = ByteBuffer.allocate((int) size);
+      while (in.hasRemaining() && channel.read(in) >= 0) {
+        // keep reading until the buffer is full
+      }
+      in.flip();
+    }
+
+    try {
+      if (in.getInt() != MAGIC) {
+        throw new IOException("Not a binary save: " + path);
+      }
+      short version = in.getShort();
+      if (version < 1 || version > VERSION) {
+        throw new IOException("Unsupported save version " + version + ": " + path);
+      }
+      TileType[] types = readTypes(in);
+
+      GameState state = GameState.valueOf(getString(in));
+      long tick = version >= 2 ? in.getLong() : 0;
+      int currentLevel = getVarint(in);
+      int count = getVarint(in);
+      List<Level> levels = new ArrayList<Level>(count);
+      for (int i = 0; i < count; i++) {
+        levels.add(readLevel(in, types));
+      }
+      Domain domain = new Domain(levels, currentLevel);
+      domain.setGameState(state);
+      domain.setTick(tick);
+      return domain;
+    } catch (BufferUnderflowException | IllegalArgumentException
+             | IndexOutOfBoundsException e) {
+      throw new IOException("Corrupt binary save: " + path, e);
+    }
+  }
+
+  //==============================================================================================//
+  //========================================= Levels =============================================//
+  //==============================================================================================//
+
+  /**
+   * Writes the names of the tile types, in the order of the codes used for them.
+   *
+   * @param out Where to write them
+   * @throws IOException If they could not be written
+   */
+  static void writeTypes(Out out) throws IOException {
+    TileType[] types = TileType.values();
+    out.putVarint(types.length);
+    for (TileType type : types) {
+      out.putString(type.name());
+    }
+  }
+
+  /**
+   * Reads the names of the tile types written by {@link #writeTypes(Out)}.
+   *
+   * @param in Where to read them from
+   * @return The tile types, by their codes
+   * @throws IllegalArgumentException If a tile type does not exist
+   */
+  static TileType[] readTypes(ByteBuffer in) {
+    TileType[] types = new TileType[getVarint(in)];
+    for (int i = 0; i < types.length; i++) {
+      types[i] = TileType.valueOf(getString(in));
+    }
+    return types;
+  }
+
+  /**
+   * Writes a level.
+   *
+   * @param level The level to write
+   * @param out   Where to write it
+   * @throws IOException If it could not be written
+   */
+  static void writeLevel(Level level, Out out) throws IOException {
+    out.putVarint(level.lvl);
+    out.putVarint(level.timeLimit);
+    out.putLong(level.getCurrentTime());
+    out.putString(level.getHeroNextStep().name());
+
+    Maze maze = level.maze;
+    int width = maze.width();
+    int height = maze.height();
+    out.putVarint(width);
+    out.putVarint(height);
+
+    // type plane, as runs of one type in cell index order
+    List<Integer> side = new ArrayList<Integer>();
+    int run = 0;
+    TileType runType = null;
+    for (int x = 0; x < width; x++) {
+      for (int y = 0; y < height; y++) {
+        TileType type = maze.getTileTypeAt(x, y);
+        if (type == null || type == TileType.Null) {
+          type = TileType.Floor;
+        } else if (type == TileType.Info || type == TileType.Other) {
+          side.add(x * height + y);
+        }
+        if (type != runType && run > 0) {
+          out.putVarint(run);
+          out.putByte(runType.ordinal());
+          run = 0;
+        }
+        runType = type;
+        run++;
+      }
+    }
+    if (run > 0) {
+      out.putVarint(run);
+      out.putByte(runType.ordinal());
+    }
+
+    // side table
+    out.putVarint(side.size());
+    for (int cell : side) {
+      out.putVarint(cell);
+      writeExtra(maze.getTileAt(cell / height, cell % height), out);
+    }
+
+    Inventory inv = level.inv;
+    out.putVarint(inv.size());
+    out.putVarint(inv.coins());
+    List<Tile> items = inv.getItems();
+    out.putVarint(items.size());
+    for (Tile item : items) {
+      out.putByte(item.type().ordinal());
+      writeExtra(item, out);
+    }
+  }
+
+  /**
+   * Reads a level.
+   *
+   * @param in    Where to read it from
+   * @param types The tile types of the codes in the file
+   * @return The level read
+   * @throws IOException If the level is not valid
+   */
+  static Level readLevel(ByteBuffer in, TileType[] types) throws IOException {
+    int lvl = getVarint(in);
+    int timeLimit = getVarint(in);
+    long timeCurrent = in.getLong();
+    Direction dir = Direction.valueOf(getString(in));
+
+    int width = getVarint(in);
+    int height = getVarint(in);
+    byte[] plane = new byte[width * height];
+    for (int i = 0; i < plane.length; ) {
+      int run = getVarint(in);
+      byte code = in.get();
+      if (run <= 0 || i + run > plane.length) {
+        throw new IOException("Type runs do not cover the maze");
+      }
+      for (int end = i + run; i < end; i++) {
+        plane[i] = code;
+      }
+    }
+
+    Map<Integer, Tile> side = new HashMap<Integer, Tile>();
+    for (int i = getVarint(in); i > 0; i--) {
+      int cell = getVarint(in);
+      Loc loc = new Loc(cell / height, cell % height);
+      side.put(cell, readExtra(types[plane[cell] & 0xFF], loc, in));
+    }
+
+    Maze maze;
+    if (width * height >= DomainPersistency.PACKED_MAZE_CELLS) {
+      // a packed maze starts filled with floors
+      maze = Maze.packed(width, height);
+      for (int i = 0; i < plane.length; i++) {
+        TileType type = types[plane[i] & 0xFF];
+        if (type != TileType.Floor) {
+          Loc loc = new Loc(i / height, i % height);
+          Tile tile = side.get(i);
+          maze.setTileAt(loc, tile != null ? tile : makeTile(type, loc));
+        }
+      }
+    } else {
+      Tile[][] tiles = new Tile[width][height];
+      for (int i = 0; i < plane.length; i++) {
+        Loc loc = new Loc(i / height, i % height);
+        Tile tile = side.get(i);
+        tiles[loc.x()][loc.y()] = tile != null ? tile : makeTile(types[plane[i] & 0xFF], loc);
+      }
+      maze = new Maze(tiles);
+    }
+
+    int size = getVarint(in);
+    int coins = getVarint(in);
+    int count = getVarint(in);
+    List<Tile> items = new ArrayList<Tile>(count);
+    for (int i = 0; i < count; i++) {
+      items.add(readExtra(types[in.get() & 0xFF], new Loc(0, 0), in));
+    }
+    Inventory inv = new Inventory(size, coins, items);
+
+    return new Level(maze, inv, lvl, timeLimit, timeCurrent, dir);
+  }
+
+  /**
+   * Writes what a tile needs besides its type to be made again.
+   *
+   * @param tile The tile
+   * @param out  Where to write it
+   * @throws IOException If it could not be written
+   */
+  private static void writeExtra(Tile tile, Out out) throws IOException {
+    String message = tile.info().message() == null ? "" : tile.info().message();
+    if (tile.type() == TileType.Info) {
+      out.putString(message);
+    } else if (tile.type() == TileType.Other) {
+      out.putString(tile.getClass().getSimpleName());
+      out.putString(message);
+    }
+  }
+
+  /**
+   * Makes a tile of a type, reading what it needs besides its type.
+   *
+   * @param type The type of the tile
+   * @param loc  The location of the tile
+   * @param in   Where to read from
+   * @return The tile
+   */
+  private static Tile readExtra(TileType type, Loc loc, ByteBuffer in) {
+    if (type == TileType.Info) {
+      return DomainPersistency.infoTile(getString(in), loc);
+    } else if (type == TileType.Other) {
+      String customTile = getString(in);
+      return DomainPersistency.customTile(customTile, getString(in), loc);
+    }
+    return makeTile(type, loc);
+  }
+
+  /**
+   * A shortcut method to make a tile.
+   *
+   * @param type the type of the tile
+   * @param loc  the location of the tile
+   * @return the tile
+   */
+  private static Tile makeTile(TileType type, Loc loc) {
+    return TileType.makeTile(type, new TileInfo(loc));
+  }
+
+  //==============================================================================================//
+  //======================================= Encoding =============================================//
+  //==============================================================================================//
+
+  /**
+   * Reads a variable length integer, seven bits per byte with the high bit set on all but the last.
+   *
+   * @param in Where to read from
+   * @return The integer
+   */
+  static int getVarint(ByteBuffer in) {
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      byte b = in.get();
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Variable length integer is too long");
+  }
+
+  /**
+   * Reads a string, as its length in bytes then its UTF-8 bytes.
+   *
+   * @param in Where to read from
+   * @return The string
+   */
+  static String getString(ByteBuffer in) {
+    byte[] bytes = new byte[getVarint(in)];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes to a channel through a buffer, so the channel gets large writes.
+   */
+  static final class Out {
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long flushed = 0; // number of bytes written out to the channel
+
+    /**
+     * Constructor for an output to a channel.
+     *
+     * @param channel The channel to write to
+     */
+    Out(WritableByteChannel channel) {
+      this.channel = channel;
+    }
+
+    /**
+     * puts the low byte of an integer.
+     *
+     * @param value The value to put
+     * @throws IOException If the buffer could not be written out
+     */
+    void putByte(int value) throws IOException {
+      ensure(1);
+      buffer.put((byte) value);
+    }
+
+    /**
+     * puts a short.
+     *
+     * @param value The value to put
+     * @throws IOException If the buffer could not be written out
+     */
+    void putShort(short value) throws IOException {
+      ensure(Short.BYTES);
+      buffer.putShort(value);
+    }
+
+    /**
+     * puts an integer.
+     *
+     * @param value The value to put
+     * @throws IOException If the buffer could not be written out
+     */
+    void putInt(int value) throws IOException {
+      ensure(Integer.BYTES);
+      buffer.putInt(value);
+    }
+
+    /**
+     * puts a long.
+     *
+     * @param value The value to put
+     * @throws IOException If the buffer could not be written out
+     */
+    void putLong(long value) throws IOException {
+      ensure(Long.BYTES);
+      buffer.putLong(value);
+    }
+
+    /**
+     * puts a variable length integer, in the form getVarint reads.
+     *
+     * @param value The value to put
+     * @throws IOException If the buffer could not be written out
+     */
+    void putVarint(int value) throws IOException {
+      ensure(5);
+      while ((value & ~0x7F) != 0) {
+        buffer.put((byte) ((value & 0x7F) | 0x80));
+        value >>>= 7;
+      }
+      buffer.put((byte) value);
+    }
+
+    /**
+     * puts a string, as its length in bytes then its UTF-8 bytes.
+     *
+     * @param value The value to put
+     * @throws IOException If the buffer could not be written out
+     */
+    void putString(String value) throws IOException {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      putVarint(bytes.length);
+      for (int i = 0; i < bytes.length; i += buffer.capacity()) {
+        int length = Math.min(buffer.capacity(), bytes.length - i);
+        ensure(length);
+        buffer.put(bytes, i, length);
+      }
+    }
+
+    /**
+     * Writes out the buffer if it does not have room for some bytes.
+     *
+     * @param bytes number of bytes about to be put
+     * @throws IOException If the buffer could not be written out
+     */
+    private void ensure(int bytes) throws IOException {
+      if (buffer.remaining() < bytes) {
+        flush();
+      }
+    }
+
+    /**
+     * Writes out everything in the buffer.
+     *
+     * @throws IOException If it could not be written
+     */
+    void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        flushed += channel.write(buffer);
+      }
+      buffer.clear();
+    }
+
+    /**
+     * Gets the number of bytes put so far.
+     *
+     * @return The number of bytes
+     */
+    long position() {
+      return flushed + buffer.position();
+    }
+  }
+}
@@ -0,0 +1,152 @@
+package nz.ac.vuw.ecs.swen225.gp6.persistency;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.Tile;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.TileInfo;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.TileType;
+
+/**
+ * <p>The classes of custom tiles, loaded from the jars in res/levels that levels and saves name as
+ * the source of their custom tiles. Each jar is opened by one class loader the first time a tile
+ * from it is needed, and each class in it is loaded (and its constructor found) once, however many
+ * tiles of it there are and however many times levels and saves using it are loaded.</p>
+ *
+ * <p>Whether a jar changed on disk (e.g. a level is edited while the game is running) is checked
+ * once each time levels or a save are loaded (see {@link #refresh()}), not for every tile. A jar
+ * that changed is opened again by a new class loader, so its new classes are used from then on.
+ * The old loader is not closed: tiles of its classes may still be in play (in a game, or a save
+ * shown in the menu), and closing it would break any class of theirs not loaded yet. Nothing but
+ * those tiles refers to it, so once they are gone it is collected, and the jar it has open is
+ * closed with it. A class that cannot be loaded is reported once, not once for every tile of
+ * it.</p>
+ *
+ * @author Benjamin Hong - 300605520
+ */
+final class CustomTiles {
+
+  // each jar as it was last opened, by name
+  private static final ConcurrentHashMap<String, Jar> jars = new ConcurrentHashMap<>();
+  // the jars checked against the disk since the last refresh, by name
+  private static final ConcurrentHashMap<String, Jar> checked = new ConcurrentHashMap<>();
+
+  /**
+   * A private constructor to prevent instantiation.
+   */
+  private CustomTiles() {
+  }
+
+  /**
+   * Gets the constructor of a custom tile class, loading the class (and opening its jar) if it is
+   * not loaded yet.
+   *
+   * @param customTile The simple name of the tile class, in the custom.tiles package
+   * @param source     The name of the jar file in res/levels
+   * @return The constructor of the class, or null if it cannot be loaded
+   */
+  static Function<TileInfo, Tile> factory(String customTile, String source) {
+    Jar jar = checked.get(source);
+    if (jar == null) {
+      jar = checked.computeIfAbsent(source, CustomTiles::check);
+    }
+    return jar.factory(customTile);
+  }
+
+  /**
+   * Makes the next tile from each jar check whether the jar changed on disk. Called before levels
+   * or a save are loaded, so each load checks each jar it uses once.
+   */
+  static void refresh() {
+    checked.clear();
+  }
+
+  /**
+   * Gets a jar as it is on disk now, opening it again if it changed since it was last opened.
+   *
+   * @param source The name of the jar file in res/levels
+   * @return The jar
+   */
+  private static Jar check(String source) {
+    File file = new File("res/levels/" + source);
+    long modified = file.lastModified();
+    long length = file.length();
+    return jars.compute(source, (name, old) ->
+        old != null && old.modified == modified && old.length == length ? old
+            : new Jar(file, modified, length));
+  }
+
+  /**
+   * A jar of custom tile classes, with the classes loaded from it so far.
+   */
+  private static final class Jar {
+
+    private final File file;
+    private final long modified; // when the jar was last changed, as it was opened
+    private final long length; // size of the jar, as it was opened
+    private URLClassLoader loader; // made when the first class is loaded
+    // constructor of each class loaded, by simple name, null if it could not be loaded
+    private final ConcurrentHashMap<String, Loaded> classes = new ConcurrentHashMap<>();
+
+    private Jar(File file, long modified, long length) {
+      this.file = file;
+      this.modified = modified;
+      this.length = length;
+    }
+
+    /**
+     * Gets the constructor of a class in the jar, loading it the first time.
+     *
+     * @param customTile The simple name of the tile class, in the custom.tiles package
+     * @return The constructor of the class, or null if it cannot be loaded
+     */
+    private Function<TileInfo, Tile> factory(String customTile) {
+      return classes.computeIfAbsent(customTile, this::load).factory();
+    }
+
+    /**
+     * Loads a class from the jar, and registers its constructor (see
+     * {@link TileType#factoryOf(Class)}), so copies of its tiles don't look it up again.
+     *
+     * @param customTile The simple name of the tile class, in the custom.tiles package
+     * @return The loaded constructor, or a null one if the class cannot be loaded
+     */
+    private Loaded load(String customTile) {
+      try {
+        Class<? extends Tile> clazz =
+            Class.forName("custom.tiles." + customTile, true, loader())
+                .asSubclass(Tile.class);
+        return new Loaded(TileType.factoryOf(clazz));
+      } catch (Exception e) {
+        System.out.println("Could not load custom tile " + customTile + " from " + file);
+        e.printStackTrace();
+        return new Loaded(null);
+      }
+    }
+
+    /**
+     * Gets the class loader of the jar, making it the first time.
+     *
+     * @return The class loader
+     * @throws MalformedURLException If the jar's path cannot be made into a URL
+     */
+    private synchronized URLClassLoader loader() throws MalformedURLException {
+      if (loader == null) {
+        loader = new URLClassLoader(new URL[]{file.toURI().toURL()},
+            DomainPersistency.class.getClassLoader());
+      }
+      return loader;
+    }
+  }
+
+  /**
+   * The constructor of a loaded class.
+   *
+   * @param factory The constructor, or null if the class could not be loaded
+   */
+  private record Loaded(Function<TileInfo, Tile> factory) {
+  }
+}
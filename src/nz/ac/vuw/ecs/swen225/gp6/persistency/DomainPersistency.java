@@ -7,10 +7,11 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
-import java.lang.reflect.Constructor;
-import java.net.URL;
-import java.net.URLClassLoader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -20,6 +21,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 import nz.ac.vuw.ecs.swen225.gp6.domain.Domain;
 import nz.ac.vuw.ecs.swen225.gp6.domain.Domain.GameState;
 import nz.ac.vuw.ecs.swen225.gp6.domain.Inventory;
@@ -45,6 +47,57 @@ import org.dom4j.io.SAXReader;
  * @author Benjamin Hong - 300605520
  */
 public final class DomainPersistency {
+  /**
+   * Mazes with at least this many cells are loaded as packed mazes, which keep plain terrain as one
+   * byte per cell.
+   */
+  static final int PACKED_MAZE_CELLS = 128 * 128;
+
+  /**
+   * The level pack all the levels in res/levels are read from, see {@link LevelPack}.
+   */
+  private static final String LEVEL_PACK = "res/levels/levels.pack";
+
+  /**
+   * The formats a game or a recording can be saved in.
+   */
+  public enum SaveFormat {
+    /**
+     * The compact binary format, the default for saves and recordings.
+     */
+    BINARY("bin"),
+    /**
+     * The XML format, easy to read and edit, for exporting saves.
+     */
+    XML("xml");
+
+    private final String extension;
+
+    SaveFormat(String extension) {
+      this.extension = extension;
+    }
+
+    /**
+     * Gets the save file of a slot in this format.
+     *
+     * @param slot The save slot
+     * @return The file, res/saves/[slot].[extension]
+     */
+    public File file(int slot) {
+      return new File("res/saves/" + slot + "." + extension);
+    }
+
+    /**
+     * Gets the recording file of a slot in this format.
+     *
+     * @param slot The recording slot
+     * @return The file, res/recordings/[slot].[extension]
+     */
+    public File recording(int slot) {
+      return new File("res/recordings/" + slot + "." + extension);
+    }
+  }
+
   /**
    * A map that holds the converter from an XML element to a tile.
    */
@@ -66,36 +119,13 @@ public final class DomainPersistency {
           put(
               "custom",
               (element, loc) -> {
-                String customTile = element.attributeValue("class");
-                String source = element.attributeValue("source");
-
-                try {
-                  File jar = new File("res/levels/" + source);
-
-                  URLClassLoader child =
-                      new URLClassLoader(
-                          new URL[]{jar.toURI().toURL()},
-                          DomainPersistency.class.getClassLoader());
-
-                  Class<?> clazz = Class.forName("custom.tiles." + customTile, true, child);
-                  Constructor<?> ctor = clazz.getConstructor(TileInfo.class);
-                  return (Tile)
-                      ctor.newInstance(
-                          new TileInfo(
-                              loc,
-                              0,
-                              Character.toLowerCase(customTile.charAt(0)) + customTile.substring(1),
-                              source));
-                } catch (Exception e) {
-                  e.printStackTrace();
-                  return makeTile(TileType.Null, loc);
-                }
+                return customTile(
+                    element.attributeValue("class"), element.attributeValue("source"), loc);
               });
           put(
               "info",
               (element, loc) -> {
-                String message = element.attributeValue("message");
-                return TileType.makeTile(TileType.Info, new TileInfo(loc, 0, "", message));
+                return infoTile(element.attributeValue("message"), loc);
               });
         }
       };
@@ -137,6 +167,44 @@ public final class DomainPersistency {
     return TileType.makeTile(tileType, new TileInfo(loc));
   }
 
+  /**
+   * Makes a custom tile, from its class in the jar it comes from in res/levels. Each jar and class
+   * is only loaded once, see {@link CustomTiles}.
+   *
+   * @param customTile the simple name of the tile class, in the custom.tiles package
+   * @param source     the name of the jar file
+   * @param loc        the location of the tile
+   * @return the tile, or a Null tile if its class cannot be loaded
+   */
+  static Tile customTile(String customTile, String source, Loc loc) {
+    Function<TileInfo, Tile> factory = CustomTiles.factory(customTile, source);
+    if (factory == null) {
+      return makeTile(TileType.Null, loc);
+    }
+    try {
+      return factory.apply(
+          new TileInfo(
+              loc,
+              0,
+              Character.toLowerCase(customTile.charAt(0)) + customTile.substring(1),
+              source));
+    } catch (RuntimeException e) {
+      e.printStackTrace();
+      return makeTile(TileType.Null, loc);
+    }
+  }
+
+  /**
+   * Makes an info tile.
+   *
+   * @param message the hint the tile shows
+   * @param loc     the location of the tile
+   * @return the tile
+   */
+  static Tile infoTile(String message, Loc loc) {
+    return TileType.makeTile(TileType.Info, new TileInfo(loc, 0, "", message));
+  }
+
   /**
    * The default converter from an XML element to a tile.
    *
@@ -164,6 +232,7 @@ public final class DomainPersistency {
     }
     levels.addAttribute("current", Integer.toString(domain.getCurrentLevel()));
     root.addAttribute("state", domain.getGameState().toString());
+    root.addAttribute("tick", Long.toString(domain.getTick()));
     return root;
   }
 
@@ -183,6 +252,8 @@ public final class DomainPersistency {
     }
     Domain domain = new Domain(levels, currentLevel);
     domain.setGameState(GameState.valueOf(state));
+    String tick = root.attributeValue("tick"); // saves made before ticks were counted have none
+    domain.setTick(tick == null ? 0 : Long.parseLong(tick));
     return domain;
   }
 
@@ -266,11 +337,17 @@ public final class DomainPersistency {
   private static Maze deserialiseMaze(Element grid) {
     int width = Integer.parseInt(grid.attributeValue("width"));
     int height = Integer.parseInt(grid.attributeValue("height"));
-    Maze maze = new Maze(new Tile[width][height]);
-    // fill maze with null tiles
-    for (int x = 0; x < width; ++x) {
-      for (int y = 0; y < height; ++y) {
-        maze.setTileAt(new Loc(x, y), TileType.Floor);
+    Maze maze;
+    if (width * height >= PACKED_MAZE_CELLS) {
+      // a packed maze starts filled with floors
+      maze = Maze.packed(width, height);
+    } else {
+      maze = new Maze(new Tile[width][height]);
+      // fill maze with null tiles
+      for (int x = 0; x < width; ++x) {
+        for (int y = 0; y < height; ++y) {
+          maze.setTileAt(new Loc(x, y), TileType.Floor);
+        }
       }
     }
     for (Element cell : grid.elements("cell")) {
@@ -407,16 +484,30 @@ public final class DomainPersistency {
   }
 
   /**
-   * Load a saved game from a slot. The associated file exists in res/saves/[slot].xml
+   * Load a saved game from a slot. The associated file exists in res/saves/[slot].bin, or
+   * res/saves/[slot].xml if the slot was saved as XML.
    *
    * @param slot The slot to load from
    * @return The loaded domain
-   * @throws DocumentException If the XML document is malformed
+   * @throws DocumentException If the save file is malformed
    */
   public static Domain loadSave(int slot) throws DocumentException {
+    CustomTiles.refresh();
+    SaveFormat format = formatOf(slot);
+    if (format == null) {
+      return getInitial();
+    }
+    if (format == SaveFormat.BINARY) {
+      try {
+        return BinarySave.read(format.file(slot).toPath());
+      } catch (IOException e) {
+        throw new DocumentException("Could not read save " + slot, e);
+      }
+    }
+
     SAXReader reader = new SAXReader();
     try {
-      InputStream in = new FileInputStream("res/saves/" + slot + ".xml");
+      InputStream in = new FileInputStream(format.file(slot));
       Document document = reader.read(in);
       return deserialiseDomain(document.getRootElement());
     } catch (FileNotFoundException e) {
@@ -425,29 +516,52 @@ public final class DomainPersistency {
   }
 
   /**
-   * Delete a saved game from a slot. The associated file in res/saves/[slot].xml is deleted.
+   * Get the format a slot is saved in.
+   *
+   * @param slot The save slot
+   * @return The format of the save, or null if the slot is empty
+   */
+  public static SaveFormat formatOf(int slot) {
+    for (SaveFormat format : SaveFormat.values()) {
+      if (format.file(slot).isFile()) {
+        return format;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Delete a saved game from a slot. The associated file in res/saves/[slot].bin or
+   * res/saves/[slot].xml is deleted.
    *
    * @param slot The slot to delete
    * @return True if the save was deleted, false otherwise
    * @throws IOException If the file could not be deleted
    */
   public static boolean delete(int slot) throws IOException {
-    File file = new File("res/saves/" + slot + ".xml");
-    return file.delete();
+    boolean deleted = false;
+    for (SaveFormat format : SaveFormat.values()) {
+      deleted |= format.file(slot).delete();
+    }
+    return deleted;
   }
 
   /**
-   * Get the initial domain object. It contains all levels found in res/levels.
+   * Get the initial domain object. It contains all levels found in res/levels. The levels are read
+   * from the level pack res/levels/levels.pack, and each is only decoded when it is first played.
+   * If the pack is missing or older than the level files, the level files are parsed and the pack
+   * is made again for next time. Once read, the levels are kept (see {@link LevelTemplates}), and
+   * later calls copy them rather than reading them again, until a level file or the pack changes.
    *
    * @return The initial domain
    */
   public static Domain getInitial() {
+    CustomTiles.refresh();
     try {
-      SAXReader reader = new SAXReader();
       // list files in res/levels
       File dir = new File("res/levels");
-      File[] filesArr = dir.listFiles();
-      if (filesArr == null) {
+      File[] filesArr = dir.listFiles((d, name) -> name.endsWith(".xml"));
+      if (filesArr == null || filesArr.length == 0) {
         throw new DocumentException("No levels found");
       }
       List<File> files = Arrays.asList(filesArr);
@@ -458,14 +572,45 @@ public final class DomainPersistency {
               return o1.getName().compareTo(o2.getName());
             }
           });
+      File pack = new File(LEVEL_PACK);
+      // the kept levels are also dropped if the pack changes, e.g. it is deleted to be made again,
+      // or a jar of custom tiles changes, so they are made from its new classes
+      List<File> sources = new ArrayList<File>(files);
+      File[] jars = dir.listFiles((d, name) -> name.endsWith(".jar"));
+      if (jars != null) {
+        Arrays.sort(jars);
+        sources.addAll(Arrays.asList(jars));
+      }
+      sources.add(pack);
+      Domain cached = LevelTemplates.instantiate(sources);
+      if (cached != null) {
+        return cached;
+      }
+
+      if (pack.isFile()) {
+        try {
+          Domain domain = LevelPack.open(pack.toPath(), files);
+          if (domain != null) {
+            return LevelTemplates.store(sources, domain);
+          }
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+      }
+
+      SAXReader reader = new SAXReader();
       List<Level> levels = new ArrayList<Level>();
       for (File file : files) {
-        if (file.getName().endsWith(".xml")) {
-          Document document = reader.read(file);
-          levels.add(deserialiseLevel(document.getRootElement()));
-        }
+        Document document = reader.read(file);
+        levels.add(deserialiseLevel(document.getRootElement()));
       }
-      return new Domain(levels, 1);
+      try {
+        LevelPack.write(levels, files, pack.toPath());
+      } catch (IOException e) {
+        System.out.println("Could not write the level pack, levels will be parsed again next time");
+        e.printStackTrace();
+      }
+      return LevelTemplates.store(sources, new Domain(levels, 1));
     } catch (DocumentException e) {
       e.printStackTrace();
       return new Domain(List.of(fallbackMaze()), new Inventory(8), 1);
@@ -473,16 +618,40 @@ public final class DomainPersistency {
   }
 
   /**
-   * Save a domain object to a save slot. The associated file exists in res/saves/[slot].xml
+   * Checks if a level of the levels kept for new games has been read yet. Levels in the level pack
+   * are only decoded when a game first gets to them (see {@link #getInitial()}).
+   *
+   * @param lvl The level, starting at 1
+   * @return True if the levels are kept and that level has been read
+   */
+  public static boolean isInitialLevelLoaded(int lvl) {
+    return LevelTemplates.isLoaded(lvl);
+  }
+
+  /**
+   * Save a domain object to a save slot in the binary format. The associated file exists in
+   * res/saves/[slot].bin
    *
    * @param domain The domain to save
    * @param slot   The save slot to save to
    * @throws IOException If the file could not be written
    */
   public static void save(Domain domain, int slot) throws IOException {
-    Element root = serialiseDomain(domain);
-    Document document = DocumentHelper.createDocument(root);
+    save(domain, slot, SaveFormat.BINARY);
+  }
 
+  /**
+   * Save a domain object to a save slot in the given format, replacing the slot's save in any other
+   * format. The associated file exists in res/saves/[slot].bin or res/saves/[slot].xml. The save is
+   * written to a temporary file first and then renamed over the old save, so a save that fails
+   * part way through (even if the game crashes) leaves the old save as it was.
+   *
+   * @param domain The domain to save
+   * @param slot   The save slot to save to
+   * @param format The format to save in
+   * @throws IOException If the file could not be written
+   */
+  public static void save(Domain domain, int slot, SaveFormat format) throws IOException {
     File dir = new File("res/saves");
     if (!dir.exists()) {
       if (!dir.mkdirs()) {
@@ -490,9 +659,38 @@ public final class DomainPersistency {
       }
     }
 
-    FileOutputStream fileStream = new FileOutputStream("res/saves/" + slot + ".xml");
-    OutputStreamWriter out = new OutputStreamWriter(fileStream, StandardCharsets.UTF_8);
-    document.write(out);
-    out.close();
+    Path file = format.file(slot).toPath();
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try {
+      if (format == SaveFormat.BINARY) {
+        BinarySave.write(domain, temp);
+      } else {
+        Element root = serialiseDomain(domain);
+        Document document = DocumentHelper.createDocument(root);
+        try (FileOutputStream fileStream = new FileOutputStream(temp.toFile());
+            OutputStreamWriter out = new OutputStreamWriter(fileStream, StandardCharsets.UTF_8)) {
+          document.write(out);
+          out.flush();
+          fileStream.getFD().sync(); // make sure the save is on disk before it replaces the old one
+        }
+      }
+      try {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException | RuntimeException e) {
+      // the old save is left as it was, and no half written save is left next to it
+      Files.deleteIfExists(temp);
+      throw e;
+    }
+
+    // the slot only keeps its newest save
+    for (SaveFormat other : SaveFormat.values()) {
+      if (other != format && other.file(slot).exists() && !other.file(slot).delete()) {
+        throw new IOException("Could not delete old save " + other.file(slot));
+      }
+    }
   }
 }
@@ -0,0 +1,155 @@
+package nz.ac.vuw.ecs.swen225.gp6.persistency;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Domain;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Level;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.TileType;
+import nz.ac.vuw.ecs.swen225.gp6.persistency.BinarySave.Out;
+
+/**
+ * <p>Reads and writes level packs: every level of the game in one file, in the binary save format,
+ * so the game can start without parsing the level files. A pack is laid out as a header (the magic
+ * number, the format version, the tile type names and the names of the level files it was made
+ * from), an index with the offset and length of each level, then the levels.</p>
+ *
+ * <p>A pack is memory-mapped when it is opened, and each level is only decoded the first time the
+ * game switches to it, so opening a pack costs the same however many levels it has.</p>
+ *
+ * @author Benjamin Hong - 300605520
+ */
+final class LevelPack {
+
+  private static final int MAGIC = 0x43484c50; // "CHLP"
+  private static final short VERSION = 1;
+  private static final int INDEX_ENTRY = Long.BYTES + Integer.BYTES; // offset and length
+
+  /**
+   * A private constructor to prevent instantiation.
+   */
+  private LevelPack() {
+  }
+
+  /**
+   * Writes a pack of levels. It is written to a temporary file first, so a pack that fails to be
+   * written never replaces a good one.
+   *
+   * @param levels  The levels, in order
+   * @param sources The level files the levels were read from, in the same order
+   * @param path    The file to write to
+   * @throws IOException If the file could not be written
+   */
+  static void write(List<Level> levels, List<File> sources, Path path) throws IOException {
+    Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      Out out = new Out(channel);
+      out.putInt(MAGIC);
+      out.putShort(VERSION);
+      BinarySave.writeTypes(out);
+      out.putVarint(sources.size());
+      for (File source : sources) {
+        out.putString(source.getName());
+      }
+
+      // leave room for the index, it is filled in once the levels are written
+      out.putVarint(levels.size());
+      long index = out.position();
+      for (int i = 0; i < levels.size() * INDEX_ENTRY; i++) {
+        out.putByte(0);
+      }
+
+      ByteBuffer entries = ByteBuffer.allocate(levels.size() * INDEX_ENTRY);
+      for (Level level : levels) {
+        long offset = out.position();
+        BinarySave.writeLevel(level, out);
+        entries.putLong(offset);
+        entries.putInt((int) (out.position() - offset));
+      }
+      out.flush();
+
+      entries.flip();
+      while (entries.hasRemaining()) {
+        index += channel.write(entries, index);
+      }
+    }
+    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Opens a pack of levels as a game, without decoding any level but the first.
+   *
+   * @param path    The pack file
+   * @param sources The level files the game is made from, in order
+   * @return The game, or null if the pack is older than the level files or was made from other
+   *         level files
+   * @throws IOException If the pack could not be read, or is not a valid pack
+   */
+  static Domain open(Path path, List<File> sources) throws IOException {
+    long packTime = Files.getLastModifiedTime(path).toMillis();
+    for (File source : sources) {
+      if (source.lastModified() > packTime) {
+        return null;
+      }
+    }
+
+    MappedByteBuffer map;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      // the mapping stays valid after the channel is closed
+      map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    try {
+      if (map.getInt() != MAGIC) {
+        throw new IOException("Not a level pack: " + path);
+      }
+      short version = map.getShort();
+      if (version != VERSION) {
+        throw new IOException("Unsupported level pack version " + version + ": " + path);
+      }
+      TileType[] types = BinarySave.readTypes(map);
+      int count = BinarySave.getVarint(map);
+      if (count != sources.size()) {
+        return null;
+      }
+      for (File source : sources) {
+        if (!source.getName().equals(BinarySave.getString(map))) {
+          return null;
+        }
+      }
+
+      int levels = BinarySave.getVarint(map);
+      ByteBuffer index = map.slice(map.position(), levels * INDEX_ENTRY);
+
+      return Domain.lazy(levels, lvl -> {
+        long offset = index.getLong((lvl - 1) * INDEX_ENTRY);
+        int length = index.getInt((lvl - 1) * INDEX_ENTRY + Long.BYTES);
+        try {
+          if (offset < 0 || length < 0 || offset + length > map.capacity()) {
+            throw new IOException("Level is outside the level pack");
+          }
+          return BinarySave.readLevel(map.slice((int) offset, length), types);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException
+                 | IndexOutOfBoundsException e) {
+          throw new UncheckedIOException(
+              new IOException("Corrupt level " + lvl + " in level pack: " + path, e));
+        }
+      }, 1);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } catch (BufferUnderflowException | IllegalArgumentException
+             | IndexOutOfBoundsException e) {
+      throw new IOException("Corrupt level pack: " + path, e);
+    }
+  }
+}
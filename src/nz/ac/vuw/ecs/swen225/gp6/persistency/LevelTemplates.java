@@ -0,0 +1,137 @@
+package nz.ac.vuw.ecs.swen225.gp6.persistency;
+
+import java.io.File;
+import java.util.List;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Domain;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Level;
+
+/**
+ * <p>The levels in res/levels, kept once they are read so a new game does not read them again.
+ * The kept levels are templates: they are never played, each new game gets its own copy of them
+ * (see {@link Level#deepCopy()}), made as the game gets to each level. Starting a new game or
+ * restarting a level is then a copy of the level in memory, not a read of the level pack. The
+ * templates are as lazy as the game they are kept from: a level in the level pack is only decoded
+ * the first time a game made from them gets to it, and then kept.</p>
+ *
+ * <p>The templates are kept along with when each file they were read from (the level files, the
+ * jars of their custom tiles and the level pack) was last changed, and are dropped as soon as one
+ * is added, removed or changed (e.g. a level is edited while the game is running), so a new game
+ * always has the levels on disk.</p>
+ *
+ * @author Benjamin Hong - 300605520
+ */
+final class LevelTemplates {
+
+  // swapped whole, so threads starting games at once see the levels and their sources together
+  private static volatile Templates cached;
+
+  /**
+   * A private constructor to prevent instantiation.
+   */
+  private LevelTemplates() {
+  }
+
+  /**
+   * Makes a new game from the kept levels, if they were read from the level files as they are now.
+   *
+   * @param sources The files the levels are read from, in order
+   * @return The new game on level 1, or null if there are no levels kept for the files
+   */
+  static Domain instantiate(List<File> sources) {
+    Templates templates = cached;
+    if (templates == null || !templates.matches(sources)) {
+      return null;
+    }
+    return templates.instantiate();
+  }
+
+  /**
+   * Checks if a level of the kept levels has been loaded, e.g. decoded from the level pack.
+   *
+   * @param lvl The level, starting at 1
+   * @return True if levels are kept and that one is loaded
+   */
+  static boolean isLoaded(int lvl) {
+    Templates templates = cached;
+    if (templates == null || lvl < 1 || lvl > templates.levels.getLevelCount()) {
+      return false;
+    }
+    synchronized (templates.levels) {
+      return templates.levels.isLevelLoaded(lvl);
+    }
+  }
+
+  /**
+   * Keeps the levels of a game as templates, replacing any kept before, and makes a new game from
+   * them. Levels of the game not loaded yet are only loaded when a new game first needs them, and
+   * the game itself should not be played after this.
+   *
+   * @param sources The files the game was read from, as they are after it was read, in order
+   * @param domain  The game, as it was read
+   * @return A new game on level 1, sharing nothing with the templates
+   */
+  static Domain store(List<File> sources, Domain domain) {
+    long[] modified = new long[sources.size()];
+    long[] lengths = new long[sources.size()];
+    for (int i = 0; i < modified.length; i++) {
+      modified[i] = sources.get(i).lastModified();
+      lengths[i] = sources.get(i).length();
+    }
+    Templates templates = new Templates(List.copyOf(sources), modified, lengths, domain);
+    cached = templates;
+    return templates.instantiate();
+  }
+
+  /**
+   * Levels kept as templates, with the files they were read from as they were when read.
+   *
+   * @param sources  The files the levels were read from
+   * @param modified When each file was last changed
+   * @param lengths  The size of each file
+   * @param levels   The game holding the levels, each loaded when it is first needed
+   */
+  private record Templates(List<File> sources, long[] modified, long[] lengths,
+                           Domain levels) {
+
+    /**
+     * Checks the levels were read from the given files, as they are now.
+     *
+     * @param files The files the levels are read from, in order
+     * @return True if the files are the same and none have changed
+     */
+    private boolean matches(List<File> files) {
+      if (!files.equals(sources)) {
+        return false;
+      }
+      for (int i = 0; i < modified.length; i++) {
+        File file = files.get(i);
+        if (file.lastModified() != modified[i] || file.length() != lengths[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Makes a new game from the levels, each level copied the first time the game gets to it.
+     *
+     * @return The new game on level 1
+     */
+    private Domain instantiate() {
+      return Domain.lazy(levels.getLevelCount(), lvl -> template(lvl).deepCopy(), 1);
+    }
+
+    /**
+     * Gets the template of a level, loading it the first time. Games on any thread may ask for it,
+     * so only one loads it.
+     *
+     * @param lvl The level, starting at 1
+     * @return The template
+     */
+    private Level template(int lvl) {
+      synchronized (levels) {
+        return levels.getLevel(lvl);
+      }
+    }
+  }
+}
@@ -5,9 +5,13 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Stack;
+import java.util.TreeSet;
 import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Actions;
 import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Pair;
+import nz.ac.vuw.ecs.swen225.gp6.persistency.DomainPersistency.SaveFormat;
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
 import org.dom4j.DocumentHelper;
@@ -16,12 +20,22 @@ import org.dom4j.io.SAXReader;
 
 /**
  * This utility class is responsible for saving and loading recorder timelines for the Recorder
- * package.
+ * package. Recordings are saved in the compact binary format (see {@link BinaryRecording}) unless
+ * XML is asked for, and either format can be loaded. Each action is stamped with the tick it was
+ * done on (see {@link nz.ac.vuw.ecs.swen225.gp6.domain.Domain#getTick()}); recordings made before
+ * ticks were counted are stamped with the game time in nanoseconds instead, and are still loaded.
+ * A recording can also hold checkpoints, the hash of the state of the game on some ticks (see
+ * {@link nz.ac.vuw.ecs.swen225.gp6.domain.Domain#stateHash()}), for a replay to check against.
  *
  * @author Benjamin Hong - 300605520
  */
 public final class RecorderPersistency {
 
+  /**
+   * The name of the elements checkpoints are saved as in the XML format.
+   */
+  private static final String CHECKPOINT = "checkpoint";
+
   /**
    * A private constructor to prevent instantiation.
    */
@@ -31,15 +45,22 @@ public final class RecorderPersistency {
   /**
    * serialise a record timeline object to an XML document.
    *
-   * @param timeline The timeline to serialise
+   * @param timeline    The timeline to serialise
+   * @param checkpoints The hashes of the state of the game, with the tick they were taken on
    * @return The serialised timeline
    */
-  private static Element serialiseTimeline(Stack<Pair<Long, Actions>> timeline) {
+  private static Element serialiseTimeline(List<Pair<Long, Actions>> timeline,
+      List<Pair<Long, Long>> checkpoints) {
     Element element = DocumentHelper.createElement("timeline");
     element.addAttribute("size", timeline.size() + "");
     for (Pair<Long, Actions> pair : timeline) {
       Element action = element.addElement(pair.value().toString());
-      action.addAttribute("time", pair.key() + "");
+      action.addAttribute("tick", pair.key() + "");
+    }
+    for (Pair<Long, Long> pair : checkpoints) {
+      Element checkpoint = element.addElement(CHECKPOINT);
+      checkpoint.addAttribute("tick", pair.key() + "");
+      checkpoint.addAttribute("hash", Long.toHexString(pair.value()));
     }
     return element;
   }
@@ -47,32 +68,69 @@ public final class RecorderPersistency {
   /**
    * Deserialise a record timeline object from an XML document.
    *
-   * @param element The XML element to deserialise
-   * @return The deserialised timeline
+   * @param element     The XML element to deserialise
+   * @param sink        Where to put the actions
+   * @param checkpoints Where to put the checkpoints
+   * @return True if the actions are stamped with tick numbers, false if with game times
    */
-  private static Stack<Pair<Long, Actions>> deserialiseTimeline(Element element) {
-    Stack<Pair<Long, Actions>> timeline = new Stack<Pair<Long, Actions>>();
+  private static boolean deserialiseTimeline(Element element, TimelineSink sink,
+      CheckpointSink checkpoints) {
+    boolean ticks = true;
     for (Element action : element.elements()) {
-      timeline.add(new Pair<Long, Actions>(Long.parseLong(action.attributeValue("time")),
-          Actions.valueOf(action.getName())));
+      if (action.getName().equals(CHECKPOINT)) {
+        checkpoints.add(Long.parseLong(action.attributeValue("tick")),
+            Long.parseUnsignedLong(action.attributeValue("hash"), 16));
+        continue;
+      }
+      String tick = action.attributeValue("tick");
+      ticks = tick != null;
+      sink.add(Long.parseLong(ticks ? tick : action.attributeValue("time")),
+          Actions.valueOf(action.getName()));
     }
-    return timeline;
+    return ticks;
   }
 
   /**
-   * Save a timeline to a slot.
-   * The associated file exists in res/recordings/[slot].xml
+   * Save a timeline to a slot in the binary format.
+   * The associated file exists in res/recordings/[slot].bin
    *
-   * @param timeline The timeline to save
+   * @param timeline The timeline to save, each action with the tick it was done on
    * @param slot     The slot to save to
    * @throws IOException If the file cannot be written to
    */
-  public static void saveTimeline(Stack<Pair<Long, Actions>> timeline, int slot)
+  public static void saveTimeline(List<Pair<Long, Actions>> timeline, int slot)
       throws IOException {
-    Element element = serialiseTimeline(timeline);
-    Document document = DocumentHelper.createDocument();
-    document.add(element);
+    saveTimeline(timeline, slot, SaveFormat.BINARY);
+  }
+
+  /**
+   * Save a timeline to a slot in the given format, replacing the slot's recording in any other
+   * format. The associated file exists in res/recordings/[slot].bin or res/recordings/[slot].xml
+   *
+   * @param timeline The timeline to save, each action with the tick it was done on
+   * @param slot     The slot to save to
+   * @param format   The format to save in
+   * @throws IOException If the file cannot be written to
+   */
+  public static void saveTimeline(List<Pair<Long, Actions>> timeline, int slot,
+      SaveFormat format) throws IOException {
+    saveTimeline(timeline, List.of(), slot, format);
+  }
 
+  /**
+   * Save a timeline and its checkpoints to a slot in the given format, replacing the slot's
+   * recording in any other format.
+   * The associated file exists in res/recordings/[slot].bin or res/recordings/[slot].xml
+   *
+   * @param timeline    The timeline to save, each action with the tick it was done on
+   * @param checkpoints The hashes of the state of the game, each with the tick it was taken on,
+   *                    in order
+   * @param slot        The slot to save to
+   * @param format      The format to save in
+   * @throws IOException If the file cannot be written to
+   */
+  public static void saveTimeline(List<Pair<Long, Actions>> timeline,
+      List<Pair<Long, Long>> checkpoints, int slot, SaveFormat format) throws IOException {
     File dir = new File("res/recordings");
     if (!dir.exists()) {
       if (!dir.mkdirs()) {
@@ -80,24 +138,171 @@ public final class RecorderPersistency {
       }
     }
 
-    FileOutputStream fileStream = new FileOutputStream("res/recordings/" + slot + ".xml");
-    OutputStreamWriter out = new OutputStreamWriter(fileStream, StandardCharsets.UTF_8);
-    document.write(out);
-    out.close();
+    if (format == SaveFormat.BINARY) {
+      BinaryRecording.write(timeline, checkpoints, format.recording(slot).toPath());
+    } else {
+      Element element = serialiseTimeline(timeline, checkpoints);
+      Document document = DocumentHelper.createDocument();
+      document.add(element);
+      FileOutputStream fileStream = new FileOutputStream(format.recording(slot));
+      OutputStreamWriter out = new OutputStreamWriter(fileStream, StandardCharsets.UTF_8);
+      document.write(out);
+      out.close();
+    }
+
+    // the slot only keeps its newest recording
+    for (SaveFormat other : SaveFormat.values()) {
+      if (other != format && other.recording(slot).exists() && !other.recording(slot).delete()) {
+        throw new IOException("Could not delete old recording " + other.recording(slot));
+      }
+    }
   }
 
   /**
    * Load a timeline from a save slot.
-   * The associated file exists in res/recordings/[slot].xml
+   * The associated file exists in res/recordings/[slot].bin or res/recordings/[slot].xml
    *
    * @param slot The slot to load from
    * @return The loaded timeline
-   * @throws DocumentException If the XML document is malformed or cannot be read
+   * @throws DocumentException If the recording is malformed or cannot be read
    */
   public static Stack<Pair<Long, Actions>> loadTimeline(int slot) throws DocumentException {
+    Stack<Pair<Long, Actions>> timeline = new Stack<Pair<Long, Actions>>();
+    loadTimeline(slot, (time, action) -> timeline.add(new Pair<Long, Actions>(time, action)));
+    return timeline;
+  }
+
+  /**
+   * Load a timeline from a save slot, handing each action to a sink in the order they were
+   * recorded, e.g. straight into a replay's timeline without making a list of them first. Older
+   * recordings are stamped with game times rather than ticks, which a replay has to schedule
+   * differently.
+   * The associated file exists in res/recordings/[slot].bin or res/recordings/[slot].xml
+   *
+   * @param slot The slot to load from
+   * @param sink Where to put the actions
+   * @return True if the actions are stamped with tick numbers, false if with game times in
+   *         nanoseconds (recordings made before ticks were counted)
+   * @throws DocumentException If the recording is malformed or cannot be read
+   */
+  public static boolean loadTimeline(int slot, TimelineSink sink) throws DocumentException {
+    return loadTimeline(slot, sink, (tick, hash) -> {
+    });
+  }
+
+  /**
+   * Load a timeline and its checkpoints from a save slot, handing each action and each checkpoint
+   * to a sink in the order they were recorded. Recordings saved without checkpoints have none.
+   * The associated file exists in res/recordings/[slot].bin or res/recordings/[slot].xml
+   *
+   * @param slot        The slot to load from
+   * @param sink        Where to put the actions
+   * @param checkpoints Where to put the checkpoints
+   * @return True if the actions are stamped with tick numbers, false if with game times in
+   *         nanoseconds (recordings made before ticks were counted)
+   * @throws DocumentException If the recording is malformed or cannot be read
+   */
+  public static boolean loadTimeline(int slot, TimelineSink sink, CheckpointSink checkpoints)
+      throws DocumentException {
+    SaveFormat format = formatOf(slot);
+    if (format == SaveFormat.BINARY) {
+      try {
+        return BinaryRecording.read(format.recording(slot).toPath(), sink, checkpoints);
+      } catch (IOException e) {
+        throw new DocumentException("Could not read recording " + slot, e);
+      }
+    }
     SAXReader reader = new SAXReader();
-    Document document = reader.read(new File("res/recordings/" + slot + ".xml"));
-    return deserialiseTimeline(document.getRootElement());
+    Document document = reader.read(SaveFormat.XML.recording(slot));
+    return deserialiseTimeline(document.getRootElement(), sink, checkpoints);
+  }
+
+  /**
+   * Get the format a slot's recording is saved in.
+   *
+   * @param slot The recording slot
+   * @return The format of the recording, or null if the slot is empty
+   */
+  public static SaveFormat formatOf(int slot) {
+    for (SaveFormat format : SaveFormat.values()) {
+      if (format.recording(slot).isFile()) {
+        return format;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Get the slots that have a recording, e.g. to replay every recording. Files in res/recordings
+   * that are not the recording of a slot (such as the journal of the game being recorded) are left
+   * out.
+   *
+   * @return The slots with a recording, in order
+   */
+  public static List<Integer> slots() {
+    File[] files = new File("res/recordings").listFiles();
+    if (files == null) {
+      return List.of();
+    }
+    TreeSet<Integer> slots = new TreeSet<Integer>();
+    for (File file : files) {
+      String name = file.getName();
+      int dot = name.lastIndexOf('.');
+      try {
+        int slot = Integer.parseInt(name.substring(0, Math.max(dot, 0)));
+        if (formatOf(slot) != null) {
+          slots.add(slot);
+        }
+      } catch (NumberFormatException e) {
+        // not named after a slot
+      }
+    }
+    return new ArrayList<Integer>(slots);
+  }
+
+  /**
+   * Delete a recording from a slot. The associated file in res/recordings/[slot].bin or
+   * res/recordings/[slot].xml is deleted.
+   *
+   * @param slot The slot to delete
+   * @return True if the recording was deleted, false otherwise
+   */
+  public static boolean delete(int slot) {
+    boolean deleted = false;
+    for (SaveFormat format : SaveFormat.values()) {
+      deleted |= format.recording(slot).delete();
+    }
+    return deleted;
+  }
+
+  /**
+   * Takes the actions of a recording as it is loaded.
+   */
+  @FunctionalInterface
+  public interface TimelineSink {
+
+    /**
+     * Takes the next action of the recording.
+     *
+     * @param tick   The tick the action was performed on (or the game time, in older recordings)
+     * @param action The action
+     */
+    void add(long tick, Actions action);
+  }
+
+  /**
+   * Takes the checkpoints of a recording as it is loaded.
+   */
+  @FunctionalInterface
+  public interface CheckpointSink {
+
+    /**
+     * Takes the next checkpoint of the recording.
+     *
+     * @param tick The tick the state of the game was hashed on
+     * @param hash The hash of the state
+     */
+    void add(long tick, long hash);
   }
 
 }
@@ -0,0 +1,387 @@
+package nz.ac.vuw.ecs.swen225.gp6.persistency;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Actions;
+import nz.ac.vuw.ecs.swen225.gp6.persistency.BinarySave.Out;
+import nz.ac.vuw.ecs.swen225.gp6.persistency.RecorderPersistency.TimelineSink;
+
+/**
+ * <p>An append-only journal of the actions of the game being recorded, so a recording is on disk as
+ * it is made and is not lost if the game crashes. Actions are handed to the journal as they happen,
+ * and a background thread writes them out in batches, every {@value #FLUSH_MILLIS} milliseconds or
+ * every {@value #BATCH_ACTIONS} actions, whichever comes first.</p>
+ *
+ * <p>A journal is laid out as a header (the magic number, the format version and the names of the
+ * actions), then the batches. Each batch is its length and CRC-32 checksum, then its actions in the
+ * form of the binary recordings (see {@link BinaryRecording}). A batch that was only partly written
+ * when the game stopped fails its checksum, and {@link #recover(Path, TimelineSink)} cuts it
+ * off.</p>
+ *
+ * @author Benjamin Hong - 300605520
+ */
+public final class RecordingJournal implements Closeable {
+
+  private static final int MAGIC = 0x4348524a; // "CHRJ"
+  private static final short VERSION = 2; // version 1 stamped actions with game times
+  private static final int BATCH_ACTIONS = 256;
+  private static final long FLUSH_MILLIS = 200;
+  private static final int FRAME = 2 * Integer.BYTES; // length and checksum of a batch
+  private static final int MAX_VARLONG = 10;
+
+  private final Path path;
+  private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "recording-journal");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  // actions waiting to be written, guarded by this
+  private long[] times = new long[BATCH_ACTIONS];
+  private Actions[] actions = new Actions[BATCH_ACTIONS];
+  private int pending = 0;
+  private boolean queued = false; // a full batch has been handed to the writer
+  private int starting = 0; // new journals asked for that the writer has not opened yet
+
+  // only used by the writer thread
+  private FileChannel channel;
+  private ByteBuffer batch = ByteBuffer.allocate(BATCH_ACTIONS * MAX_VARLONG + FRAME);
+  private long last = 0; // time of the last action written
+  private final int bits = BinaryRecording.codeBits(Actions.values().length);
+
+  /**
+   * Creates a journal. Nothing is written until {@link #start()} is called.
+   *
+   * @param path The journal file
+   */
+  public RecordingJournal(Path path) {
+    this.path = path;
+    writer.scheduleWithFixedDelay(this::writeQuietly, FLUSH_MILLIS, FLUSH_MILLIS,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Starts a new journal, replacing the file. This only hands the work to the background thread and
+   * never waits for the disk. Actions added before this that are not written yet are written to the
+   * old journal first, those added after it go to the new one.
+   */
+  public void start() {
+    Batch old;
+    synchronized (this) {
+      old = takePending();
+      starting++;
+    }
+    writer.execute(() -> {
+      try {
+        write(old);
+        open();
+      } catch (IOException e) {
+        System.out.println("Failed to start recording journal");
+        e.printStackTrace();
+      } finally {
+        synchronized (this) {
+          starting--;
+        }
+      }
+    });
+  }
+
+  /**
+   * Adds an action to the journal. It is written out by the background thread soon after, this
+   * never waits for the disk.
+   *
+   * @param tick   The tick the action was performed on
+   * @param action The action
+   */
+  public synchronized void append(long tick, Actions action) {
+    if (action == null) {
+      throw new IllegalArgumentException("Action cannot be null");
+    }
+    if (pending == times.length) {
+      times = Arrays.copyOf(times, pending * 2);
+      actions = Arrays.copyOf(actions, pending * 2);
+    }
+    times[pending] = tick;
+    actions[pending++] = action;
+    if (pending >= BATCH_ACTIONS && !queued) {
+      queued = true;
+      writer.execute(this::writeQuietly);
+    }
+  }
+
+  /**
+   * Writes out every action added so far, and waits until they are on disk.
+   *
+   * @throws IOException If they could not be written
+   */
+  public void flush() throws IOException {
+    await(writer.submit(() -> {
+      writeBatch();
+      return null;
+    }));
+  }
+
+  /**
+   * Writes out every action added so far, and stops the background thread.
+   *
+   * @throws IOException If they could not be written
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      await(writer.submit(() -> {
+        writeBatch();
+        if (channel != null) {
+          channel.close();
+          channel = null;
+        }
+        return null;
+      }));
+    } finally {
+      writer.shutdown();
+    }
+  }
+
+  /**
+   * Reads the actions of a journal, handing each to a sink in order, with the tick they were
+   * performed on. If the end of the journal was only partly written (e.g. the game crashed while
+   * writing it), the file is cut back to the last whole batch, and the actions in it are all that
+   * are read.
+   *
+   * @param path The journal file
+   * @param sink Where to put the actions
+   * @return The number of actions read, 0 if there is no journal
+   * @throws IOException If the file could not be read or cut back
+   */
+  public static int recover(Path path, TimelineSink sink) throws IOException {
+    ByteBuffer in;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      in = ByteBuffer.allocate((int) Math.min(channel.size(), Integer.MAX_VALUE));
+      while (in.hasRemaining() && channel.read(in) >= 0) {
+        // keep reading until the buffer is full
+      }
+      in.flip();
+    } catch (NoSuchFileException e) {
+      return 0;
+    }
+
+    Actions[] codes;
+    try {
+      if (in.getInt() != MAGIC || in.getShort() != VERSION) {
+        throw new IOException("Not a recording journal: " + path);
+      }
+      codes = BinaryRecording.readActions(in);
+    } catch (BufferUnderflowException e) {
+      truncate(path, 0); // the header itself was cut short
+      return 0;
+    } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+      throw new IOException("Corrupt recording journal: " + path, e);
+    }
+
+    int bits = BinaryRecording.codeBits(codes.length);
+    long mask = (1L << bits) - 1;
+    long time = 0;
+    int count = 0;
+    CRC32 crc = new CRC32();
+    while (in.hasRemaining()) {
+      int start = in.position();
+      ByteBuffer body;
+      try {
+        int length = in.getInt();
+        int checksum = in.getInt();
+        body = in.slice(in.position(), length);
+        crc.reset();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != checksum) {
+          throw new IllegalArgumentException("Checksum does not match");
+        }
+        in.position(in.position() + length);
+      } catch (BufferUnderflowException | IllegalArgumentException
+               | IndexOutOfBoundsException e) {
+        truncate(path, start);
+        break;
+      }
+      try {
+        while (body.hasRemaining()) {
+          long value = BinaryRecording.getVarlong(body);
+          time += BinaryRecording.unpackDelta(value, bits);
+          sink.add(time, codes[(int) (value & mask)]);
+          count++;
+        }
+      } catch (BufferUnderflowException | IllegalArgumentException
+               | IndexOutOfBoundsException e) {
+        // the checksum matched, so the batch was written wrong rather than cut short
+        throw new IOException("Corrupt batch in recording journal: " + path, e);
+      }
+    }
+    return count;
+  }
+
+  //==============================================================================================//
+  //====================================== Writer Thread =========================================//
+  //==============================================================================================//
+
+  /**
+   * Writes a batch, reporting an error instead of throwing it, as the scheduled writes have no one
+   * to throw it to.
+   */
+  private void writeQuietly() {
+    try {
+      writeBatch();
+    } catch (IOException e) {
+      System.out.println("Failed to write recording journal");
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Opens a new journal file, writes its header and forces it to disk. Only called on the writer
+   * thread.
+   *
+   * @throws IOException If the file could not be made
+   */
+  private void open() throws IOException {
+    if (channel != null) {
+      channel.close();
+      channel = null;
+    }
+    Path dir = path.toAbsolutePath().getParent();
+    if (dir != null) {
+      Files.createDirectories(dir);
+    }
+    channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+    Out out = new Out(channel);
+    out.putInt(MAGIC);
+    out.putShort(VERSION);
+    BinaryRecording.writeActions(out);
+    out.flush();
+    channel.force(true);
+    last = 0;
+  }
+
+  /**
+   * Writes the actions waiting to be written as a batch, and forces it to disk. They wait if a new
+   * journal is still to be opened, as they belong in it. Only called on the writer thread.
+   *
+   * @throws IOException If the batch could not be written
+   */
+  private void writeBatch() throws IOException {
+    Batch pendingBatch;
+    synchronized (this) {
+      queued = false;
+      if (starting > 0) {
+        return;
+      }
+      pendingBatch = takePending();
+    }
+    write(pendingBatch);
+  }
+
+  /**
+   * Takes the actions waiting to be written, leaving none waiting. Called holding the lock.
+   *
+   * @return The actions, null if there are none
+   */
+  private Batch takePending() {
+    if (pending == 0) {
+      return null;
+    }
+    Batch taken = new Batch(times, actions, pending);
+    times = new long[Math.max(BATCH_ACTIONS, pending)];
+    actions = new Actions[times.length];
+    pending = 0;
+    return taken;
+  }
+
+  /**
+   * Writes actions to the journal as a batch, and forces it to disk. Only called on the writer
+   * thread.
+   *
+   * @param taken The actions, nothing is written if null or no journal has been started
+   * @throws IOException If the batch could not be written
+   */
+  private void write(Batch taken) throws IOException {
+    if (taken == null || channel == null) {
+      return;
+    }
+    int count = taken.count();
+    if (batch.capacity() < count * MAX_VARLONG + FRAME) {
+      batch = ByteBuffer.allocate(count * MAX_VARLONG + FRAME);
+    }
+    batch.clear();
+    batch.position(FRAME);
+    for (int i = 0; i < count; i++) {
+      BinaryRecording.putVarlong(batch, BinaryRecording.pack(taken.times()[i] - last,
+          taken.actions()[i], bits));
+      last = taken.times()[i];
+    }
+    batch.flip();
+    CRC32 crc = new CRC32();
+    crc.update(batch.slice(FRAME, batch.limit() - FRAME));
+    batch.putInt(0, batch.limit() - FRAME);
+    batch.putInt(Integer.BYTES, (int) crc.getValue());
+    while (batch.hasRemaining()) {
+      channel.write(batch);
+    }
+    channel.force(false);
+  }
+
+  /**
+   * Cuts a file back to a length.
+   *
+   * @param path   The file
+   * @param length The length to cut it to
+   * @throws IOException If it could not be cut
+   */
+  private static void truncate(Path path, long length) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      channel.truncate(length);
+      channel.force(true);
+    }
+  }
+
+  /**
+   * Waits for a task on the writer thread.
+   *
+   * @param task The task
+   * @throws IOException If the task threw it
+   */
+  private static void await(Future<?> task) throws IOException {
+    try {
+      task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while writing recording journal", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException io) {
+        throw io;
+      }
+      throw new IOException("Could not write recording journal", e.getCause());
+    }
+  }
+
+  /**
+   * Actions taken from those waiting to be written, to be written as one batch.
+   *
+   * @param times   The ticks they were performed on
+   * @param actions The actions
+   * @param count   The number of them, from the start of the arrays
+   */
+  private record Batch(long[] times, Actions[] actions, int count) {
+  }
+}
@@ -0,0 +1,132 @@
+package nz.ac.vuw.ecs.swen225.gp6.persistency;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Actions;
+import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Pair;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Domain;
+import nz.ac.vuw.ecs.swen225.gp6.persistency.DomainPersistency.SaveFormat;
+
+/**
+ * Saves games and recordings in the background, so saving never holds up the game. The game is
+ * copied on the thread that asks for the save (which is cheap), then written by a worker thread.
+ * Saves are written one at a time, in the order they were asked for.
+ *
+ * @author Benjamin Hong - 300605520
+ */
+public final class SaveService {
+
+  public static final SaveService INSTANCE = new SaveService();
+
+  private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "save-writer");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * A private constructor to prevent instantiation.
+   */
+  private SaveService() {
+  }
+
+  /**
+   * Saves a game to a save slot in the binary format in the background, see
+   * {@link #save(Domain, int, SaveFormat, Consumer)}.
+   *
+   * @param domain   The game to save
+   * @param slot     The save slot to save to
+   * @param callback Called on the worker thread once the save is written, with null if it was
+   *                 saved or the exception if it could not be
+   * @return The pending save, to wait for it
+   */
+  public Future<?> save(Domain domain, int slot, Consumer<IOException> callback) {
+    return save(domain, slot, SaveFormat.BINARY, callback);
+  }
+
+  /**
+   * Saves a game to a save slot in the background. The game is copied before this returns, so it
+   * can go on being played while the copy is written. The save replaces the old one in one step
+   * once it is written (see {@link DomainPersistency#save(Domain, int, SaveFormat)}).
+   *
+   * @param domain   The game to save, must not be in the middle of a ping
+   * @param slot     The save slot to save to
+   * @param format   The format to save in
+   * @param callback Called on the worker thread once the save is written, with null if it was
+   *                 saved or the exception if it could not be (a GUI should hand it on to its own
+   *                 thread)
+   * @return The pending save, to wait for it
+   * @throws NullPointerException if the domain, format or callback is null
+   */
+  public Future<?> save(Domain domain, int slot, SaveFormat format,
+      Consumer<IOException> callback) {
+    if (domain == null || format == null || callback == null) {
+      throw new NullPointerException("Domain, format and callback cannot be null");
+    }
+    Domain snapshot = domain.snapshot();
+    return worker.submit(() -> {
+      IOException error = null;
+      try {
+        DomainPersistency.save(snapshot, slot, format);
+      } catch (IOException e) {
+        error = e;
+      } catch (RuntimeException e) {
+        error = new IOException("Could not save game in slot " + slot, e);
+      }
+      callback.accept(error);
+    });
+  }
+
+  /**
+   * Saves a recording to a slot in the binary format in the background (see
+   * {@link RecorderPersistency#saveTimeline(List, int)}). Recordings and games are written one at a
+   * time, in the order they were asked for.
+   *
+   * @param timeline The actions to save, which must not change after this is called (e.g. a
+   *                 snapshot of a recording)
+   * @param slot     The slot to save to
+   * @param callback Called on the worker thread once the recording is written, with null if it was
+   *                 saved or the exception if it could not be
+   * @return The pending save, to wait for it
+   * @throws NullPointerException if the timeline or callback is null
+   */
+  public Future<?> saveTimeline(List<Pair<Long, Actions>> timeline, int slot,
+      Consumer<IOException> callback) {
+    return saveTimeline(timeline, List.of(), slot, callback);
+  }
+
+  /**
+   * Saves a recording and its checkpoints to a slot in the binary format in the background (see
+   * {@link RecorderPersistency#saveTimeline(List, List, int, SaveFormat)}).
+   *
+   * @param timeline    The actions to save, which must not change after this is called (e.g. a
+   *                    snapshot of a recording)
+   * @param checkpoints The hashes of the state of the game to save, which must not change either
+   * @param slot        The slot to save to
+   * @param callback    Called on the worker thread once the recording is written, with null if it
+   *                    was saved or the exception if it could not be
+   * @return The pending save, to wait for it
+   * @throws NullPointerException if the timeline, checkpoints or callback is null
+   */
+  public Future<?> saveTimeline(List<Pair<Long, Actions>> timeline,
+      List<Pair<Long, Long>> checkpoints, int slot, Consumer<IOException> callback) {
+    if (timeline == null || checkpoints == null || callback == null) {
+      throw new NullPointerException("Timeline, checkpoints and callback cannot be null");
+    }
+    return worker.submit(() -> {
+      IOException error = null;
+      try {
+        RecorderPersistency.saveTimeline(timeline, checkpoints, slot, SaveFormat.BINARY);
+      } catch (IOException e) {
+        error = e;
+      } catch (RuntimeException e) {
+        error = new IOException("Could not save recording in slot " + slot, e);
+      }
+      callback.accept(error);
+    });
+  }
+}
@@ -1,68 +1,205 @@
 package nz.ac.vuw.ecs.swen225.gp6.recorder;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Actions;
+import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Pair;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Domain;
 import nz.ac.vuw.ecs.swen225.gp6.persistency.RecorderPersistency;
+import nz.ac.vuw.ecs.swen225.gp6.persistency.RecordingJournal;
+import nz.ac.vuw.ecs.swen225.gp6.persistency.SaveService;
+import nz.ac.vuw.ecs.swen225.gp6.recorder.datastructures.Checkpoints;
 import nz.ac.vuw.ecs.swen225.gp6.recorder.datastructures.RecordTimeline;
 import org.dom4j.DocumentException;
 
 /**
- * Class for recording actions in a game.
+ * Class for recording actions in a game. Every action is also written to a journal on disk as it
+ * is recorded, so a game that crashes is not lost: the next time the game is launched, the actions
+ * in the journal are saved as the recording in slot {@value #RECOVERED_SLOT}, which the load menu
+ * replays as the last session. Once the recording is saved to a slot, the journal is cleared until
+ * the next action, so a session that was saved before the game stopped is not recovered again.
+ *
+ * <p>Every {@value #CHECKPOINT_TICKS} ticks the hash of the state of the game is kept with the
+ * recording as a checkpoint, so a replay of it can tell the first tick it stopped playing out the
+ * same. Checkpoints are not journaled, a recovered recording has none.</p>
  *
  * @author Jayden Hooper
  */
 public final class Record {
 
+  /**
+   * The slot the recording of the last session is saved to when the game is launched, if it was
+   * not saved. It is not one of the save slots, as it has no saved game.
+   */
+  public static final int RECOVERED_SLOT = 0;
+
+  /**
+   * The number of ticks between checkpoints, about a second of play.
+   */
+  public static final int CHECKPOINT_TICKS = 30;
+
+  private static final Path JOURNAL = Path.of("res/recordings/journal.bin");
+
   public static final Record INSTANCE = new Record();
   private RecordTimeline<Actions> timeline;
+  private Checkpoints checkpoints = new Checkpoints();
+  private final RecordingJournal journal = new RecordingJournal(JOURNAL);
+  private boolean journalCleared = false; // the journal was cleared after the recording was saved
 
   /**
    * Create a new Record object.
    */
   private Record() {
-    this.timeline = new RecordTimeline<>();
+    this.timeline = new RecordTimeline<>(Actions.class);
+    recoverJournal();
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      try {
+        journal.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }, "recording-journal-close"));
   }
 
   /**
    * Starts a new recording.
    */
-  public void startRecording() {
-    this.timeline = new RecordTimeline<>();
+  public synchronized void startRecording() {
+    this.timeline = new RecordTimeline<>(Actions.class);
+    this.checkpoints = new Checkpoints();
+    startJournal();
   }
 
   /**
-   * Stitches a recording to the start of this recording.
+   * Starts a new recording that goes on from a saved one. If the saved recording cannot be loaded,
+   * the new recording starts empty.
    *
    * @param slot the slot to load the recording from.
    **/
-  public void stitchRecording(int slot) {
+  public synchronized void stitchRecording(int slot) {
+    RecordTimeline<Actions> stitched = new RecordTimeline<>(Actions.class);
+    Checkpoints stitchedCheckpoints = new Checkpoints();
+    this.timeline = new RecordTimeline<>(Actions.class);
+    this.checkpoints = new Checkpoints();
     try {
-      this.timeline = new RecordTimeline<Actions>(RecorderPersistency.loadTimeline(slot));
+      if (RecorderPersistency.loadTimeline(slot, stitched::add, stitchedCheckpoints::add)) {
+        this.timeline = stitched;
+        this.checkpoints = stitchedCheckpoints;
+      } else {
+        System.out.println("Recording is too old to go on with, starting a new one");
+      }
     } catch (DocumentException e) {
       e.printStackTrace();
     }
+    startJournal();
+    journalTimeline();
   }
 
   /**
-   * Adds a time and action to the timeline.
+   * Adds an action to the timeline.
    *
-   * @param time    the time the action is executed.
+   * @param tick    the tick of the game the action is executed on.
    * @param actions the action executed.
    */
-  public void addActions(long time, Actions actions) {
-    this.timeline.add(time, actions);
+  public synchronized void addActions(long tick, Actions actions) {
+    this.timeline.add(tick, actions);
+    if (journalCleared) { // the recording has moved on from the save, journal all of it again
+      journalCleared = false;
+      journalTimeline();
+    } else {
+      this.journal.append(tick, actions);
+    }
   }
 
   /**
-   * Saves the recording to a file.
+   * Takes a checkpoint of the game if the tick it is on is due one. Called after each ping of the
+   * game being recorded, before any action is done on the new tick.
+   *
+   * @param game the game being recorded.
+   */
+  public synchronized void checkpoint(Domain game) {
+    if (game.getTick() % CHECKPOINT_TICKS == 0) {
+      this.checkpoints.add(game.getTick(), game.stateHash());
+    }
+  }
+
+  /**
+   * Saves the recording to a file. The recording is written in the background, recording can go
+   * on while it is. Once it is saved the journal is cleared, unless actions were recorded since.
    *
    * @param slot the slot to save the recording to.
    */
-  public void saveRecording(int slot) {
+  public synchronized void saveRecording(int slot) {
+    RecordTimeline<Actions> saved = timeline;
+    int savedSize = saved.size();
+    SaveService.INSTANCE.saveTimeline(saved.asList(), checkpoints.asList(), slot, e -> {
+      if (e == null) {
+        System.out.println("Saved recording to file");
+        clearJournal(saved, savedSize);
+      } else {
+        System.out.println("Error saving recording");
+      }
+    });
+  }
+
+  /**
+   * Checks if there is a recording of the last session, recovered from its journal, to replay.
+   *
+   * @return true if there is a recording in slot {@value #RECOVERED_SLOT}
+   */
+  public static boolean hasRecoveredRecording() {
+    return RecorderPersistency.formatOf(RECOVERED_SLOT) != null;
+  }
+
+  //======================================================================================//
+  //=================================== Helper Methods ===================================//
+  //======================================================================================//
+
+  /**
+   * Saves the actions left in the journal by the last session as a recording, cutting off a batch
+   * the last session was part way through writing.
+   */
+  private void recoverJournal() {
+    RecordTimeline<Actions> recovered = new RecordTimeline<>(Actions.class);
     try {
-      RecorderPersistency.saveTimeline(timeline.getTimeline(), slot);
-      System.out.println("Saved recording to file");
-    } catch (Exception e) {
-      System.out.println("Error saving recording");
+      if (RecordingJournal.recover(JOURNAL, recovered::add) > 0) {
+        RecorderPersistency.saveTimeline(recovered.asList(), RECOVERED_SLOT);
+        System.out.println("Recovered last recording to slot " + RECOVERED_SLOT);
+        startJournal(); // it is saved now, so it is not recovered again next launch
+      }
+    } catch (IOException e) {
+      System.out.println("Error recovering last recording");
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Clears the journal once the recording has been saved, if nothing was recorded since it was.
+   *
+   * @param saved     the timeline that was saved
+   * @param savedSize the number of actions in it when it was saved
+   */
+  private synchronized void clearJournal(RecordTimeline<Actions> saved, int savedSize) {
+    if (timeline == saved && timeline.size() == savedSize) {
+      startJournal();
+      journalCleared = true;
+    }
+  }
+
+  /**
+   * Writes every action of the recording so far to the journal.
+   */
+  private void journalTimeline() {
+    for (Pair<Long, Actions> pair : timeline.asList()) {
+      journal.append(pair.key(), pair.value());
     }
   }
+
+  /**
+   * Starts a new journal for a new recording.
+   */
+  private void startJournal() {
+    journalCleared = false;
+    journal.start();
+  }
 }
@@ -2,14 +2,29 @@ package nz.ac.vuw.ecs.swen225.gp6.recorder;
 
 import nz.ac.vuw.ecs.swen225.gp6.app.App;
 import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Actions;
+import nz.ac.vuw.ecs.swen225.gp6.app.utilities.HeadlessRunner;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Domain;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Domain.GameState;
 import nz.ac.vuw.ecs.swen225.gp6.persistency.RecorderPersistency;
+import nz.ac.vuw.ecs.swen225.gp6.recorder.datastructures.Checkpoints;
+import nz.ac.vuw.ecs.swen225.gp6.recorder.datastructures.RecordTimeline;
 import nz.ac.vuw.ecs.swen225.gp6.recorder.datastructures.ReplayTimeline;
 import org.dom4j.DocumentException;
 
 /**
- * Class for replaying a recorded game. The Replay class observes the App to be updated of the time,
- * to make sure actions are in sync with the game. This allows the App to still have control of the
- * game during replay.
+ * Class for replaying a recorded game. The Replay class observes the App to be updated of each
+ * tick, and does each action just before the ping after the tick it was recorded on, as it was when
+ * it was recorded, so a replay always ends the same way at any speed. This allows the App to still
+ * have control of the game during replay.
+ *
+ * <p>While the replay plays, a copy of the game is kept every {@link #KEYFRAME_TICKS} ticks (and at
+ * the start of each level). Seeking restores the nearest keyframe before the time and runs the game
+ * on headless from there (see {@link ReplaySeeker}), so it never runs more than about that many
+ * ticks, however long the recording is.</p>
+ *
+ * <p>On each tick the recording has a checkpoint for, the hash of the replayed game is compared
+ * with the hash the recorded game had, and the first tick they differ on is reported, as from
+ * there the replay no longer plays out the same as the game it was recorded from.</p>
  *
  * @author Jayden Hooper
  */
@@ -19,9 +34,19 @@ public final class Replay implements Runnable {
    * The singleton instance of the Replay class.
    */
   public static final Replay INSTANCE = new Replay();
+
+  /**
+   * The number of ticks between keyframes.
+   */
+  public static final int KEYFRAME_TICKS = 150;
+
   private ReplayTimeline<Actions> timeline;
+  private ReplaySeeker seeker;
+  private Checkpoints checkpoints = new Checkpoints();
+  private long desyncTick = -1; // first tick the replay did not match its checkpoint, -1 if none
   private App app;
   private long time;
+  private boolean byTick = true; // actions are stamped with ticks, not game times
   private boolean step = false;
 
   /**
@@ -44,8 +69,17 @@ public final class Replay implements Runnable {
   @Override
   public void run() {
     this.time = app.getGameClock().getTimePlayed();
-    if (actionReady()) {
-      executeAction(timeline.next().value());
+    // no keyframes between levels, the clock still has the time of the level that was won
+    Domain game = app.getGame();
+    checkDesync(game);
+    if (app.isResuming() && game.getGameState() == GameState.PLAYING) {
+      seeker.keyframe(game, time);
+    }
+    while (actionReady()) {
+      executeAction(timeline.next());
+      if (!byTick) {
+        break; // actions stamped with times are done at most one per tick
+      }
     }
   }
 
@@ -56,14 +90,52 @@ public final class Replay implements Runnable {
    * @return this replay object to chain methods.
    */
   public Replay load(int slot) {
+    RecordTimeline<Actions> recording = new RecordTimeline<>(Actions.class);
+    Checkpoints loaded = new Checkpoints();
     try {
-      this.timeline = new ReplayTimeline<Actions>(RecorderPersistency.loadTimeline(slot));
+      this.byTick = RecorderPersistency.loadTimeline(slot, recording::add, loaded::add);
+      this.timeline = new ReplayTimeline<Actions>(recording);
+      this.checkpoints = loaded;
+      this.desyncTick = -1;
+      this.seeker = new ReplaySeeker(timeline, byTick, this::checkDesync);
+      seeker.keyframe(app.getGame(), app.getGameClock().getTimePlayed());
     } catch (DocumentException e) {
       e.printStackTrace();
     }
     return this;
   }
 
+  /**
+   * Moves the replay to a time in the current level, backwards or forwards. The replay is paused,
+   * and the game is put in place from the nearest keyframe at or before the time (or the game as it
+   * is, if that is nearer), run on headless to the time. If the level is won before the time, the
+   * replay stops at the start of the next level.
+   *
+   * @param time the game time in the current level to move to, in nanoseconds.
+   * @return this replay object to chain methods.
+   */
+  public Replay seek(long time) {
+    pauseReplay();
+    restore(seeker.seek(app.getGame(), app.getGameClock().getTimePlayed(), time));
+    return this;
+  }
+
+  /**
+   * Moves the replay back to just before the last tick that replayed actions, so stepping replays
+   * them again. The replay is paused.
+   *
+   * @return this replay object to chain methods.
+   */
+  public Replay stepBack() {
+    pauseReplay();
+    if (timeline.position() == 0) {
+      System.out.println("Replay at start");
+      return this;
+    }
+    restore(seeker.stepBack(app.getGame(), app.getGameClock().getTimePlayed()));
+    return this;
+  }
+
   /**
    * Method queues the next action in the timeline if available. If there is no next action, the
    * method will pop up a message.
@@ -122,10 +194,47 @@ public final class Replay implements Runnable {
     return this;
   }
 
+  /**
+   * Gets the first tick the replay did not match the checkpoint the recording has for it.
+   *
+   * @return the tick, or -1 if the replay has matched every checkpoint so far.
+   */
+  public long getDesyncTick() {
+    return desyncTick;
+  }
+
   //======================================================================================//
   //=================================== Helper Methods ===================================//
   //======================================================================================//
 
+  /**
+   * Method hands the game a replay was moved to to the App.
+   *
+   * @param to the point the replay was moved to, null if it was not moved.
+   */
+  private void restore(ReplaySeeker.Position to) {
+    if (to != null) {
+      app.restoreReplayGame(to.game(), to.timePlayed());
+    }
+  }
+
+  /**
+   * Method compares the game with the checkpoint the recording has for its tick, if it has one,
+   * and reports the tick if it is the first one found not to match.
+   *
+   * @param game the replayed game, just after its last ping.
+   */
+  private void checkDesync(Domain game) {
+    int index = checkpoints.find(game.getTick());
+    if (index == -1 || checkpoints.hash(index) == game.stateHash()) {
+      return;
+    }
+    if (desyncTick == -1 || game.getTick() < desyncTick) {
+      desyncTick = game.getTick();
+      System.out.println("Replay no longer matches the recording from tick " + desyncTick);
+    }
+  }
+
   /**
    * Method checks if the next action is valid.
    *
@@ -137,7 +246,7 @@ public final class Replay implements Runnable {
       System.out.println("Replay finished");
       return false;
     }
-    return timeline.peek().key() <= time;
+    return HeadlessRunner.isDue(timeline, byTick, app.getGame().getTick(), time);
   }
 
   /**
@@ -165,7 +274,7 @@ public final class Replay implements Runnable {
     }
     action.replay(app);
     if (step) {
-      app.getGame().pingDomain();
+      // the clock stops after this tick's ping, which shows the action
       app.getGameClock().stop();
       this.step = false;
     }
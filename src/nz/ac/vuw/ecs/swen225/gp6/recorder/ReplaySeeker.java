@@ -0,0 +1,150 @@
+package nz.ac.vuw.ecs.swen225.gp6.recorder;
+
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Actions;
+import nz.ac.vuw.ecs.swen225.gp6.app.utilities.HeadlessRunner;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Domain;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Domain.GameState;
+import nz.ac.vuw.ecs.swen225.gp6.recorder.datastructures.Keyframes;
+import nz.ac.vuw.ecs.swen225.gp6.recorder.datastructures.Keyframes.Keyframe;
+import nz.ac.vuw.ecs.swen225.gp6.recorder.datastructures.ReplayTimeline;
+
+/**
+ * Class for moving a replay to another point in it, backwards or forwards, apart from the App that
+ * shows it. While the replay plays, a copy of the game is kept every {@link Replay#KEYFRAME_TICKS}
+ * ticks (and at the start of each level). A move puts a copy of the nearest keyframe before the
+ * point in place and runs it on headless to the point, so it never runs more than about that many
+ * ticks, however long the recording is.
+ *
+ * @author Jayden Hooper
+ */
+public final class ReplaySeeker {
+
+  private final Keyframes<Domain> keyframes =
+      new Keyframes<>(Replay.KEYFRAME_TICKS * HeadlessRunner.TICK_NANOS);
+  private final ReplayTimeline<Actions> timeline;
+  private final boolean byTick;
+  private final Consumer<Domain> onTick;
+
+  /**
+   * Creates a seeker for a replay, with no keyframes yet.
+   *
+   * @param timeline the actions of the replay, its cursor is moved with the replay.
+   * @param byTick   true if the actions are stamped with ticks, false if with game times.
+   * @param onTick   told of the game after each tick run on headless, e.g. to check it.
+   */
+  public ReplaySeeker(ReplayTimeline<Actions> timeline, boolean byTick, Consumer<Domain> onTick) {
+    if (timeline == null || onTick == null) {
+      throw new IllegalArgumentException("Timeline and tick observer cannot be null");
+    }
+    this.timeline = timeline;
+    this.byTick = byTick;
+    this.onTick = onTick;
+  }
+
+  /**
+   * Keeps a copy of the replayed game as a keyframe, unless there is one in the same level within
+   * the interval before it. Must be called between ticks, before the actions due are done.
+   *
+   * @param game the replayed game.
+   * @param time the game time played in its current level, in nanoseconds.
+   */
+  public void keyframe(Domain game, long time) {
+    keyframes.add(game.getCurrentLevel(), time, timeline.position(), game::deepCopy);
+  }
+
+  /**
+   * Moves the replay to a time in the current level, backwards or forwards, from the nearest
+   * keyframe at or before the time (or the game as it is, if that is nearer). If the level is won
+   * before the time, the replay stops at the start of the next level.
+   *
+   * @param game the replayed game, it is not changed.
+   * @param now  the game time played in its current level, in nanoseconds.
+   * @param time the game time in the current level to move to, in nanoseconds.
+   * @return the game at the time, or null if there is nowhere to move from.
+   */
+  public Position seek(Domain game, long now, long time) {
+    int level = game.getCurrentLevel();
+    Keyframe<Domain> from = keyframes.floor(level, time);
+    if (now <= time && (from == null || from.time() <= now)) {
+      from = new Keyframe<>(level, now, timeline.position(), game);
+    }
+    if (from == null) {
+      return null;
+    }
+    return restore(from, runner -> runner.getTimePlayed() >= time
+        || runner.getGame().getCurrentLevel() != level);
+  }
+
+  /**
+   * Moves the replay back to just before the last tick that replayed actions, so stepping replays
+   * them again. The actions done on one tick are all replayed together, so they are stepped back
+   * over together.
+   *
+   * @param game the replayed game, it is not changed.
+   * @param now  the game time played in its current level, in nanoseconds.
+   * @return the game before the tick, or null if no action has been replayed or there is nowhere
+   *     to move from.
+   */
+  public Position stepBack(Domain game, long now) {
+    int last = timeline.position() - 1;
+    if (last < 0) {
+      return null;
+    }
+    int first = last;
+    if (byTick) { // actions stamped with times are done one per tick
+      while (first > 0 && timeline.timeAt(first - 1) == timeline.timeAt(last)) {
+        first--;
+      }
+    }
+    int target = first;
+    Keyframe<Domain> from = keyframes.floorPosition(game.getCurrentLevel(), now, target);
+    if (from == null) {
+      return null;
+    }
+    // stop on the tick the first of the actions is due, before it is done
+    return restore(from, runner -> timeline.position() >= target && runner.isDue(timeline));
+  }
+
+  /**
+   * Gets the number of keyframes kept.
+   *
+   * @return the number of keyframes.
+   */
+  public int keyframeCount() {
+    return keyframes.size();
+  }
+
+  /**
+   * Method runs a copy of a keyframe on headless until it reaches a state. Keyframes are kept on
+   * the way.
+   *
+   * @param from the keyframe to start from, it is not changed.
+   * @param done tests if the run has reached the state to stop at.
+   * @return the game the run stopped at.
+   */
+  private Position restore(Keyframe<Domain> from, Predicate<HeadlessRunner> done) {
+    Domain game = from.state().deepCopy();
+    HeadlessRunner runner = new HeadlessRunner(game, from.time(), byTick);
+    timeline.setPosition(from.position());
+    while (!runner.isFinished() && !done.test(runner)) {
+      runner.tick(timeline);
+      onTick.accept(game);
+      if (game.getGameState() == GameState.PLAYING) {
+        keyframe(game, runner.getTimePlayed());
+      }
+    }
+    // the runner listens to the copy, the game given back is one without its listeners
+    return new Position(game.snapshot(), runner.getTimePlayed());
+  }
+
+  /**
+   * A point a replay was moved to.
+   *
+   * @param game       the game at the point, without any event listeners.
+   * @param timePlayed the game time played in its current level, in nanoseconds.
+   */
+  public record Position(Domain game, long timePlayed) {
+  }
+}
@@ -0,0 +1,133 @@
+package nz.ac.vuw.ecs.swen225.gp6.recorder.datastructures;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Pair;
+
+/**
+ * A store of checkpoints, the hash of the state of the game on a tick, taken every so often while a
+ * game is recorded. A replay compares the hash of its own state on the same ticks, and the first
+ * tick they differ on is where the replay stopped playing out the same as the recorded game. Like
+ * the timelines, the ticks and hashes are kept in columns.
+ *
+ * @author Jayden Hooper
+ */
+public class Checkpoints {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private long[] ticks = new long[INITIAL_CAPACITY];
+  private long[] hashes = new long[INITIAL_CAPACITY];
+  private int size;
+
+  /**
+   * Adds a checkpoint. Checkpoints must be added in order of tick, a checkpoint on a tick at or
+   * before the last one is ignored (e.g. the same tick hashed again after a pause).
+   *
+   * @param tick the tick the state was hashed on.
+   * @param hash the hash of the state.
+   * @return true if the checkpoint was added.
+   */
+  public boolean add(long tick, long hash) {
+    if (size > 0 && tick <= ticks[size - 1]) {
+      return false;
+    }
+    if (size == ticks.length) {
+      ticks = Arrays.copyOf(ticks, size * 2);
+      hashes = Arrays.copyOf(hashes, size * 2);
+    }
+    ticks[size] = tick;
+    hashes[size] = hash;
+    size++;
+    return true;
+  }
+
+  /**
+   * Finds the checkpoint on a tick.
+   *
+   * @param tick the tick.
+   * @return the index of the checkpoint, or -1 if there is none on the tick.
+   */
+  public int find(long tick) {
+    int index = Arrays.binarySearch(ticks, 0, size, tick);
+    return index < 0 ? -1 : index;
+  }
+
+  /**
+   * Gets the hash of a checkpoint.
+   *
+   * @param index the index of the checkpoint, in order of tick.
+   * @return the hash of the state at the checkpoint.
+   * @throws IndexOutOfBoundsException if there is no checkpoint at the index.
+   */
+  public long hash(int index) {
+    return hashes[checkIndex(index)];
+  }
+
+  /**
+   * Gets the number of checkpoints.
+   *
+   * @return the number of checkpoints.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets the checkpoints taken so far as a read-only list of tick and hash pairs, without copying
+   * them. The list does not change as more checkpoints are added, so it can be saved on another
+   * thread while recording goes on.
+   *
+   * @return the checkpoints taken so far, in order.
+   */
+  public List<Pair<Long, Long>> asList() {
+    // checkpoints below the size are never written again, growing the columns makes new arrays
+    return new Snapshot(ticks, hashes, size);
+  }
+
+  /**
+   * Checks an index is the index of a checkpoint.
+   *
+   * @param index the index to check.
+   * @return the index.
+   * @throws IndexOutOfBoundsException if there is no checkpoint at the index.
+   */
+  private int checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("No checkpoint at index " + index + " of " + size);
+    }
+    return index;
+  }
+
+  /**
+   * A read-only list over the columns of the checkpoints, up to the size they had when it was made.
+   */
+  private static final class Snapshot extends AbstractList<Pair<Long, Long>>
+      implements RandomAccess {
+
+    private final long[] ticks;
+    private final long[] hashes;
+    private final int size;
+
+    private Snapshot(long[] ticks, long[] hashes, int size) {
+      this.ticks = ticks;
+      this.hashes = hashes;
+      this.size = size;
+    }
+
+    @Override
+    public Pair<Long, Long> get(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("No checkpoint at index " + index + " of " + size);
+      }
+      return new Pair<>(ticks[index], hashes[index]);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package nz.ac.vuw.ecs.swen225.gp6.recorder.datastructures;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * A generic store of keyframes, copies of the state of a replay taken every so often, so the replay
+ * can jump back (or far forward) by starting from the nearest keyframe instead of from the start.
+ * Keyframes are ordered by level then by the game time in the level, as the clock restarts for each
+ * level. A keyframe is only kept if there is no other keyframe in the same level within the
+ * interval before it, so replaying a part of the game again does not add more keyframes.
+ *
+ * @param <S> the type of the states
+ * @author Jayden Hooper
+ */
+public class Keyframes<S> {
+
+  private static final int TIME_BITS = 48; // game time in a key, about 78 hours in nanoseconds
+
+  private final long interval;
+  private final TreeMap<Long, Keyframe<S>> frames = new TreeMap<>();
+
+  /**
+   * Creates an empty store of keyframes.
+   *
+   * @param interval the least game time between two keyframes in a level, in nanoseconds.
+   * @throws IllegalArgumentException if the interval is not positive.
+   */
+  public Keyframes(long interval) {
+    if (interval <= 0) {
+      throw new IllegalArgumentException("Interval must be positive");
+    }
+    this.interval = interval;
+  }
+
+  /**
+   * Adds a keyframe, unless there is already one in the same level within the interval before it.
+   * The state is only made if the keyframe is added.
+   *
+   * @param level    the level the state is on.
+   * @param time     the game time played in the level, in nanoseconds.
+   * @param position the position of the replay timeline at the state.
+   * @param state    makes the state, it must not be changed after it is added.
+   * @return true if the keyframe was added.
+   */
+  public boolean add(int level, long time, int position, Supplier<S> state) {
+    Map.Entry<Long, Keyframe<S>> before = frames.floorEntry(key(level, time));
+    if (before != null && before.getValue().level() == level
+        && time - before.getValue().time() < interval) {
+      return false;
+    }
+    frames.put(key(level, time), new Keyframe<>(level, time, position, state.get()));
+    return true;
+  }
+
+  /**
+   * Gets the last keyframe in a level at or before a time, or the first keyframe of the level if
+   * they are all after it.
+   *
+   * @param level the level to look in.
+   * @param time  the game time played in the level, in nanoseconds.
+   * @return the keyframe, or null if there are no keyframes in the level.
+   */
+  public Keyframe<S> floor(int level, long time) {
+    Map.Entry<Long, Keyframe<S>> entry = frames.floorEntry(key(level, time));
+    if (entry == null || entry.getValue().level() != level) {
+      entry = frames.ceilingEntry(key(level, 0));
+    }
+    return entry == null || entry.getValue().level() != level ? null : entry.getValue();
+  }
+
+  /**
+   * Gets the last keyframe at or before a state that is at most a position into the replay
+   * timeline, e.g. to go back to before an action.
+   *
+   * @param level    the level of the state to start looking back from.
+   * @param time     the game time played in the level, in nanoseconds.
+   * @param position the most actions replayed at the keyframe.
+   * @return the keyframe, or null if there is none.
+   */
+  public Keyframe<S> floorPosition(int level, long time, int position) {
+    for (Keyframe<S> frame : frames.headMap(key(level, time), true).descendingMap().values()) {
+      if (frame.position() <= position) {
+        return frame;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Gets the number of keyframes.
+   *
+   * @return the number of keyframes.
+   */
+  public int size() {
+    return frames.size();
+  }
+
+  /**
+   * Removes every keyframe, e.g. when another recording is loaded.
+   */
+  public void clear() {
+    frames.clear();
+  }
+
+  /**
+   * Makes the key of a keyframe, which orders keyframes by level then by time.
+   *
+   * @param level the level.
+   * @param time  the game time played in the level, in nanoseconds.
+   * @return the key.
+   */
+  private static long key(int level, long time) {
+    return ((long) level << TIME_BITS) + Math.max(0, Math.min(time, (1L << TIME_BITS) - 1));
+  }
+
+  /**
+   * A copy of the state of a replay.
+   *
+   * @param level    the level the state is on.
+   * @param time     the game time played in the level, in nanoseconds.
+   * @param position the position of the replay timeline at the state.
+   * @param state    the state.
+   * @param <S>      the type of the state.
+   */
+  public record Keyframe<S>(int level, long time, int position, S state) {
+  }
+}
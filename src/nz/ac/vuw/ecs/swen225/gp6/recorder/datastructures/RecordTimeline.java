@@ -1,36 +1,61 @@
 package nz.ac.vuw.ecs.swen225.gp6.recorder.datastructures;
 
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
 import java.util.Stack;
 import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Pair;
 
 /**
  * A generic record timeline class that stores a series of events in chronological order. Events can
- * only be added to the end of the timeline.
+ * only be added to the end of the timeline. The timeline is kept in columns, the time of each event
+ * in a long array and the ordinal of each event in a byte array, so it takes nine bytes per event,
+ * and adding an event does not make any objects (except when the columns grow, which doubles them).
  *
- * @param <E> the type of the events
+ * @param <E> the type of the events, an enum of at most 256 constants
  * @author Jayden Hooper
  */
-public class RecordTimeline<E> {
+public class RecordTimeline<E extends Enum<E>> {
 
-  /**
-   * The internal structure of the Timeline represented as a Stack of Pairs.
-   */
-  private final Stack<Pair<Long, E>> timeline;
+  private static final int INITIAL_CAPACITY = 256;
+
+  final E[] constants; // the events, by ordinal
+  long[] times; // time of each event
+  byte[] events; // ordinal of each event
+  int size; // number of events
+  int[] starts = {0}; // indexes where the time goes back (e.g. the clock restarts for a new level)
+  int segments = 1; // number of starts used
 
   /**
    * Creates a new Timeline.
+   *
+   * @param type the enum class of the events.
+   * @throws IllegalArgumentException if type is null or has more than 256 constants.
    */
-  public RecordTimeline() {
-    this.timeline = new Stack<>();
+  public RecordTimeline(Class<E> type) {
+    if (type == null) {
+      throw new IllegalArgumentException("Event type cannot be null");
+    }
+    this.constants = type.getEnumConstants();
+    if (constants.length > 256) {
+      throw new IllegalArgumentException("Events must have at most 256 constants");
+    }
+    this.times = new long[INITIAL_CAPACITY];
+    this.events = new byte[INITIAL_CAPACITY];
   }
 
   /**
    * Creates a new timeline from an existing timeline.
    *
-   * @param timeline the timeline to start from.
+   * @param type     the enum class of the events.
+   * @param timeline the timeline to start from, in the order the events happened.
    */
-  public RecordTimeline(Stack<Pair<Long, E>> timeline) {
-    this.timeline = (Stack) timeline.clone();
+  public RecordTimeline(Class<E> type, List<Pair<Long, E>> timeline) {
+    this(type);
+    for (Pair<Long, E> pair : timeline) {
+      add(pair.key(), pair.value());
+    }
   }
 
   /**
@@ -38,22 +63,134 @@ public class RecordTimeline<E> {
    *
    * @param time    the time the actions are performed.
    * @param actions the actions performed.
+   * @throws IllegalArgumentException if the actions are null.
+   */
+  public void add(long time, E actions) {
+    if (actions == null) {
+      throw new IllegalArgumentException("Actions cannot be null");
+    }
+    if (size == times.length) {
+      times = Arrays.copyOf(times, size * 2);
+      events = Arrays.copyOf(events, size * 2);
+    }
+    if (size > 0 && time < times[size - 1]) {
+      if (segments == starts.length) {
+        starts = Arrays.copyOf(starts, segments * 2);
+      }
+      starts[segments++] = size;
+    }
+    times[size] = time;
+    events[size] = (byte) actions.ordinal();
+    size++;
+  }
+
+  /**
+   * Gets the number of events in the timeline.
+   *
+   * @return the number of events.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets the time of an event.
+   *
+   * @param index the index of the event, in the order the events were added.
+   * @return the time of the event.
+   * @throws IndexOutOfBoundsException if there is no event at the index.
+   */
+  public long time(int index) {
+    return times[checkIndex(index)];
+  }
+
+  /**
+   * Gets an event.
+   *
+   * @param index the index of the event, in the order the events were added.
+   * @return the event.
+   * @throws IndexOutOfBoundsException if there is no event at the index.
    */
-  public void add(Long time, E actions) {
-    this.timeline.add(new Pair<>(time, actions));
+  public E event(int index) {
+    return constants[events[checkIndex(index)] & 0xFF];
   }
 
   /**
-   * Gets the internal representation of the timeline.
+   * Gets the timeline as a stack of pairs, e.g. to save it. Each call makes a new stack.
    *
-   * @return The stack of pairs representing the timeline.
+   * @return The stack of pairs representing the timeline, the last event on top.
    */
   public Stack<Pair<Long, E>> getTimeline() {
-    return (Stack) timeline.clone();
+    Stack<Pair<Long, E>> timeline = new Stack<>();
+    timeline.ensureCapacity(size);
+    for (int i = 0; i < size; i++) {
+      timeline.add(new Pair<>(times[i], constants[events[i] & 0xFF]));
+    }
+    return timeline;
+  }
+
+  /**
+   * Gets the events recorded so far as a read-only list of pairs, without copying them. The list
+   * does not change as more events are added, so it can be read on another thread (e.g. to save
+   * it in the background) while recording goes on.
+   *
+   * @return The events recorded so far, in order.
+   */
+  public List<Pair<Long, E>> asList() {
+    // events below the size are never written again, growing the columns makes new arrays
+    return new Snapshot<>(constants, times, events, size);
+  }
+
+  /**
+   * Checks an index is the index of an event.
+   *
+   * @param index the index to check.
+   * @return the index.
+   * @throws IndexOutOfBoundsException if there is no event at the index.
+   */
+  private int checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("No event at index " + index + " of " + size);
+    }
+    return index;
   }
 
   @Override
   public String toString() {
-    return "Timeline: " + this.timeline.toString();
+    return "Timeline: " + this.getTimeline().toString();
+  }
+
+  /**
+   * A read-only list over the columns of a timeline, up to the size it had when it was made.
+   *
+   * @param <E> the type of the events
+   */
+  private static final class Snapshot<E> extends AbstractList<Pair<Long, E>>
+      implements RandomAccess {
+
+    private final E[] constants;
+    private final long[] times;
+    private final byte[] events;
+    private final int size;
+
+    private Snapshot(E[] constants, long[] times, byte[] events, int size) {
+      this.constants = constants;
+      this.times = times;
+      this.events = events;
+      this.size = size;
+    }
+
+    @Override
+    public Pair<Long, E> get(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("No event at index " + index + " of " + size);
+      }
+      return new Pair<>(times[index], constants[events[index] & 0xFF]);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
   }
 }
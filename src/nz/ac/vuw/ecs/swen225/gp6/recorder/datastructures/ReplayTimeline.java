@@ -1,22 +1,28 @@
 package nz.ac.vuw.ecs.swen225.gp6.recorder.datastructures;
 
-import java.util.Stack;
-import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Pair;
+import java.util.StringJoiner;
 
 /**
- * A generic timeline class that replays a series of events in chronological order. Events can be
- * retrieved in both forward and reverse order.
+ * A generic timeline class that replays a series of events in chronological order. The timeline
+ * reads the columns of a record timeline without copying them, and keeps a cursor on the next
+ * event, which can be moved in both directions or to a time.
  *
  * @param <E> the type of the events
  * @author Jayden Hooper
  */
-public class ReplayTimeline<E> {
+public class ReplayTimeline<E extends Enum<E>> {
 
-  private final Stack<Pair<Long, E>> forward;
-  private final Stack<Pair<Long, E>> backward;
+  private final E[] constants;
+  private final long[] times;
+  private final byte[] events;
+  private final int size;
+  private final int[] starts;
+  private final int segments;
+  private int cursor = 0; // index of the next event
 
   /**
-   * Creates a new Timeline.
+   * Creates a new Timeline, of the events recorded so far. Events recorded after this are not part
+   * of the replay.
    *
    * @param recording the recording to replay from a RecordTimeline object.
    */
@@ -24,62 +30,152 @@ public class ReplayTimeline<E> {
     if (recording == null) {
       throw new IllegalArgumentException("Timeline cannot be null");
     }
-    this.forward = new Stack<>();
-    this.backward = new Stack<>();
-    Stack<Pair<Long, E>> temp = recording.getTimeline();
-    while (!temp.isEmpty()) {
-      forward.push(temp.pop());    // reverse stack
+    this.constants = recording.constants;
+    this.times = recording.times;
+    this.events = recording.events;
+    this.size = recording.size;
+    this.starts = recording.starts;
+    this.segments = recording.segments;
+  }
+
+  /**
+   * Returns the next action in the timeline, and moves the cursor past it.
+   *
+   * @return returns the event of the next action.
+   * @throws IllegalStateException if there are no more actions.
+   */
+  public E next() {
+    if (!hasNext()) {
+      throw new IllegalStateException("No more actions in the timeline");
     }
+    return constants[events[cursor++] & 0xFF];
   }
 
   /**
-   * Creates a new Timeline.
+   * Checks if there are any more actions in the timeline.
    *
-   * @param recording the recording to replay from a stack of pairs.
+   * @return Whether there are more actions in the timeline.
    */
-  public ReplayTimeline(Stack<Pair<Long, E>> recording) {
-    if (recording == null) {
-      throw new IllegalArgumentException("Timeline cannot be null");
+  public boolean hasNext() {
+    return cursor < size;
+  }
+
+  /**
+   * Returns the time of the next action in the timeline without moving the cursor.
+   *
+   * @return returns the time of the next action.
+   * @throws IllegalStateException if there are no more actions.
+   */
+  public long peekTime() {
+    if (!hasNext()) {
+      throw new IllegalStateException("No more actions in the timeline");
     }
-    this.forward = new Stack<>();
-    this.backward = new Stack<>();
-    while (!recording.isEmpty()) {
-      forward.push(recording.pop());    // reverse stack
+    return times[cursor];
+  }
+
+  /**
+   * Returns the time of an action in the timeline, wherever the cursor is.
+   *
+   * @param index the position of the action, from 0 to the number of actions - 1.
+   * @return returns the time of the action.
+   * @throws IndexOutOfBoundsException if the index is outside the timeline.
+   */
+  public long timeAt(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + " is outside the timeline");
     }
+    return times[index];
   }
 
   /**
-   * Returns the next action in the timeline.
+   * Returns the next action in the timeline without moving the cursor.
    *
-   * @return returns the time and event of the next action.
+   * @return returns the event of the next action.
+   * @throws IllegalStateException if there are no more actions.
    */
-  public Pair<Long, E> next() {
-    Pair<Long, E> action = forward.pop();
-    backward.push(action);
-    return action;
+  public E peek() {
+    if (!hasNext()) {
+      throw new IllegalStateException("No more actions in the timeline");
+    }
+    return constants[events[cursor] & 0xFF];
   }
 
   /**
-   * Checks if there are any more actions in the timeline.
+   * Gets the position of the cursor, the number of actions before the next action.
    *
-   * @return Whether there are more actions in the timeline.
+   * @return the position of the cursor.
    */
-  public boolean hasNext() {
-    return !this.forward.isEmpty();
+  public int position() {
+    return cursor;
+  }
+
+  /**
+   * Moves the cursor to a position.
+   *
+   * @param position the number of actions before the next action, from 0 to the number of actions.
+   * @throws IndexOutOfBoundsException if the position is outside the timeline.
+   */
+  public void setPosition(int position) {
+    if (position < 0 || position > size) {
+      throw new IndexOutOfBoundsException("Position " + position + " is outside the timeline");
+    }
+    this.cursor = position;
   }
 
   /**
-   * Returns the next action in the timeline without removing it.
+   * Gets the number of actions in the timeline.
    *
-   * @return returns the time and event of the next action.
+   * @return the number of actions.
    */
-  public Pair<Long, E> peek() {
-    return forward.peek();
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Moves the cursor to the first action after the given time, so the actions at or before the time
+   * are behind it. The time is searched for (by binary search) in the part of the timeline the
+   * cursor is in, between two points where the time goes back (e.g. when a new level restarts the
+   * clock).
+   *
+   * @param time the time to move to.
+   * @return the new position of the cursor.
+   */
+  public int seek(long time) {
+    // find the part of the timeline the cursor is in
+    int low = 0;
+    int high = segments - 1;
+    int target = Math.min(cursor, size - 1);
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (starts[mid] <= target) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    int from = starts[low];
+    int to = low + 1 < segments ? starts[low + 1] : size;
+
+    // find the first action after the time in it
+    while (from < to) {
+      int mid = (from + to) >>> 1;
+      if (times[mid] <= time) {
+        from = mid + 1;
+      } else {
+        to = mid;
+      }
+    }
+    this.cursor = from;
+    return cursor;
   }
 
   @Override
   public String toString() {
-    return "Timeline {Previous actions: " + this.backward.toString()
-        + ", Next actions: " + this.forward.toString() + "}";
+    StringJoiner previous = new StringJoiner(", ", "[", "]");
+    StringJoiner next = new StringJoiner(", ", "[", "]");
+    for (int i = 0; i < size; i++) {
+      (i < cursor ? previous : next).add(times[i] + "=" + constants[events[i] & 0xFF]);
+    }
+    return "Timeline {Previous actions: " + previous + ", Next actions: " + next + "}";
   }
 }
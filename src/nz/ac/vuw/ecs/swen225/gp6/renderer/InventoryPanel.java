@@ -2,6 +2,7 @@ package nz.ac.vuw.ecs.swen225.gp6.renderer;
 
 import java.awt.Graphics;
 import java.awt.GridLayout;
+import java.awt.image.BufferedImage;
 import java.util.List;
 import javax.swing.JPanel;
 import nz.ac.vuw.ecs.swen225.gp6.domain.Domain;
@@ -14,6 +15,10 @@ public class InventoryPanel extends JPanel {
 
   //----------------------------------------------Fields------------------------------------------------------------------//
   private Domain maze;
+  private volatile RenderSnapshot snapshot; //the game being played, null if showing a save
+  //the images scaled to the size of the slots, which are all the same size
+  private final ScaledImages slots = new ScaledImages();
+  private final ScaledImages items = new ScaledImages();
 //-----------------------------------------------constructor---------------------------------------------------------------//
 
   /**
@@ -33,20 +38,34 @@ public class InventoryPanel extends JPanel {
         @Override
         public void paintComponent(Graphics g) {
           super.paintComponent(g);
-          g.drawImage(mazeRenderer.getImage("empty_tile"), 0, 0, getWidth(), getHeight(), null);
+          g.drawImage(slots.get(mazeRenderer.getImage("empty_tile"), getWidth(), getHeight(), g),
+              0, 0, null);
           int size = Math.min(getWidth(), getHeight());
-          if (maze == null) {
-            return;
+          BufferedImage img;
+          RenderSnapshot frame = snapshot;
+          if (frame != null) {
+            List<RenderSnapshot.Cell> inventory = frame.inventory();
+            if (slotNum >= inventory.size()) {
+              return;
+            }
+            img = mazeRenderer.getCurrentTexturePack().getImage(inventory.get(slotNum));
+          } else {
+            if (maze == null) {
+              return;
+            }
+            List<Tile> inventory = maze.getInventory();
+            if (slotNum >= inventory.size()) {
+              return;
+            }
+            img = mazeRenderer.getImage(inventory.get(slotNum));
           }
-          List<Tile> inventory = maze.getInventory();
-          if (slotNum >= inventory.size()) {
-            return;
-          }
-          g.drawImage(mazeRenderer.getImage(inventory.get(slotNum)), (getWidth() - size) / 2,
-              (getHeight() - size) / 2, size, size, null);
+          g.drawImage(items.get(img, size, size, g), (getWidth() - size) / 2,
+              (getHeight() - size) / 2, null);
         }
       });
     }
+    //the items are drawn with the renderer's texture pack, and must be drawn again when it changes
+    mazeRenderer.addPropertyChangeListener("texturePack", unused -> repaint());
   }
 //-------------------------------------------setters and getters methods----------------------------------//
 
@@ -67,5 +86,20 @@ public class InventoryPanel extends JPanel {
    */
   public void setMaze(Domain maze) {
     this.maze = maze;
+    this.snapshot = null;
+  }
+
+  /**
+   * show the inventory of a snapshot of the game being played, in place of the last one. may be
+   * called from any thread. the panel is only repainted if the inventory changed.
+   *
+   * @param frame the snapshot to show
+   */
+  public void show(RenderSnapshot frame) {
+    RenderSnapshot last = this.snapshot;
+    this.snapshot = frame;
+    if (last == null || !last.inventory().equals(frame.inventory())) {
+      repaint();
+    }
   }
 }
@@ -5,6 +5,7 @@ import static nz.ac.vuw.ecs.swen225.gp6.renderer.TexturePack.Images.reloadAllTex
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -12,12 +13,12 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.swing.JPanel;
 import javax.swing.Timer;
 import nz.ac.vuw.ecs.swen225.gp6.domain.Domain;
 import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.Tile;
 import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.TileType;
-import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.Hero;
 import nz.ac.vuw.ecs.swen225.gp6.domain.Utility.Direction;
 
 /**
@@ -29,12 +30,18 @@ public class MazeRenderer extends JPanel {
 
   //----------------------------fields------------------------------------------------------------------------------//
   static final long serialVersionUID = 1L; //serialVersionUID
+  static final int MAX_RENDER_SIZE = 50; //the largest view distance
+  private static final Rectangle INFO_BOX = new Rectangle(250, 100, 200, 200); //the info pop up
   private static TexturePack texturePack = null; //this is not a bug it is a feature. see report
   private final List<TexturePack> textures;
   private Domain domain; //the domain controller
   private int patternSize = 100; //the size of the pattern
   private int renderSize = 7; //the size of the render
   private boolean changingLvl = false; //if the level is changing
+  //the last snapshot of the game, swapped in whole by the thread running the game
+  private final AtomicReference<RenderSnapshot> snapshot =
+      new AtomicReference<>(RenderSnapshot.EMPTY);
+  private final ScaledImages tiles = new ScaledImages(); //tile images scaled to the tile size
 
 //----------------------------------Constructor-----------------------------------------------------------//
 
@@ -75,9 +82,10 @@ public class MazeRenderer extends JPanel {
   public void setTexturePack(String texturePack) {
     for (TexturePack tp : textures) {
       if (tp.getName().equals(texturePack)) {
+        TexturePack old = MazeRenderer.texturePack;
         MazeRenderer.texturePack = tp; //this is not a bug it is a feature. see report
         patternSize = 100;
-        reloadAllTexturePack();
+        texturePackChanged(old);
         return;
       }
     }
@@ -93,10 +101,11 @@ public class MazeRenderer extends JPanel {
       changeLvl(g);
       return;
     }
-    //draw the game as usual
-    drawMaze(g);
+    //draw the game as usual, from one snapshot so the whole frame shows the same tick
+    RenderSnapshot frame = snapshot.get();
+    drawMaze(g, frame);
     //if we are drawing info draw it
-    if (domain.heroIsOnInfo()) {
+    if (frame.heroOnInfo()) {
       drawInfo(g);
     }
   }
@@ -104,39 +113,100 @@ public class MazeRenderer extends JPanel {
 //-----------------------------------------load in texture packs----------------------------------------------//
 
   /**
-   * draws the maze.
+   * draws the maze around the hero, as it is in a snapshot.
+   *
+   * @param g     the graphics object
+   * @param frame the snapshot to draw
    */
-  private void drawMaze(Graphics g) {
-    //get the maze array
-    //the array of tiles
-    Tile[][] gameArray = domain.getGameArray();
-    //viewport of the maze
-    Tile[][] viewport = Viewport.getViewport(gameArray, renderSize);
+  private void drawMaze(Graphics g, RenderSnapshot frame) {
+    int size = renderSize;
+    //the maze coords of the top left tile of the viewport
+    int xStart = frame.heroX() - size / 2;
+    int yStart = frame.heroY() - size / 2;
     //get the width and height of the maze
-    int tileWidth = (getWidth() / viewport.length);
-    int tileHeight = (getHeight() / viewport[1].length);
-    //loop through the maze array and paint the tiles
-    for (int i = 0; i < viewport.length; i++) {
-      for (int j = 0; j < viewport[1].length; j++) {
+    int tileWidth = (getWidth() / size);
+    int tileHeight = (getHeight() / size);
+    if (tileWidth == 0 || tileHeight == 0) {
+      return;
+    }
+    //only the tiles in the area being repainted are drawn, swing clips the rest away anyway
+    Rectangle clip = g.getClipBounds();
+    int iFrom = 0;
+    int jFrom = 0;
+    int iTo = size - 1;
+    int jTo = size - 1;
+    if (clip != null) {
+      iFrom = Math.max(0, clip.x / tileWidth);
+      jFrom = Math.max(0, clip.y / tileHeight);
+      iTo = Math.min(size - 1, (clip.x + clip.width - 1) / tileWidth);
+      jTo = Math.min(size - 1, (clip.y + clip.height - 1) / tileHeight);
+    }
+    //the images are scaled to the tile size once, not every time they are drawn
+    BufferedImage floor = tiles.get(texturePack.getImage("floor"), tileWidth, tileHeight, g);
+    //loop through the viewport and paint the tiles
+    for (int i = iFrom; i <= iTo; i++) {
+      for (int j = jFrom; j <= jTo; j++) {
         //clear the floor
-        g.drawImage(texturePack.getImage("floor"), i * tileWidth, j * tileHeight, tileWidth,
-            tileHeight, null);
+        g.drawImage(floor, i * tileWidth, j * tileHeight, null);
         // if there is an item draw on top of the floor or a wall tile
-        Tile tile = viewport[i][j];
-        if (tile.type() == TileType.Floor) {
+        RenderSnapshot.Cell cell = frame.cellAt(xStart + i, yStart + j);
+        if (cell.type() == TileType.Floor) {
           continue;
         }
         //if hero tile then draw the hero depending on the direction
-        if (tile.type() == TileType.Hero) {
-          Hero hero = (Hero) tile;
-          BufferedImage img = getHeroImg(hero.dir());
-          g.drawImage(img, i * tileWidth, j * tileHeight, tileWidth, tileHeight, null);
-        } else {
-          g.drawImage(texturePack.getImage(tile), i * tileWidth, j * tileHeight, tileWidth,
-              tileHeight, null);
+        BufferedImage img = cell.type() == TileType.Hero ? getHeroImg(frame.heroFacing())
+            : texturePack.getImage(cell);
+        g.drawImage(tiles.get(img, tileWidth, tileHeight, g), i * tileWidth, j * tileHeight,
+            null);
+      }
+    }
+  }
+
+  /**
+   * find the area of the panel that looks different in one snapshot than in another: the tiles of
+   * the viewport that changed (or moved, if the hero moved), and the info pop up if it came or
+   * went.
+   *
+   * @param last  the snapshot painted before
+   * @param frame the snapshot to paint
+   * @return the area to repaint, null if nothing changed
+   */
+  private Rectangle changedArea(RenderSnapshot last, RenderSnapshot frame) {
+    int size = renderSize;
+    int tileWidth = (getWidth() / size);
+    int tileHeight = (getHeight() / size);
+    if (tileWidth == 0 || tileHeight == 0) { //not laid out yet, it is painted whole when it is
+      return null;
+    }
+    int lastX = last.heroX() - size / 2;
+    int lastY = last.heroY() - size / 2;
+    int xStart = frame.heroX() - size / 2;
+    int yStart = frame.heroY() - size / 2;
+    boolean turned = last.heroFacing() != frame.heroFacing();
+    //the corners of the changed tiles, in tiles of the viewport
+    int iFrom = size;
+    int jFrom = size;
+    int iTo = -1;
+    int jTo = -1;
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        RenderSnapshot.Cell before = last.cellAt(lastX + i, lastY + j);
+        RenderSnapshot.Cell after = frame.cellAt(xStart + i, yStart + j);
+        if (before.equals(after) && !(turned && after.type() == TileType.Hero)) {
+          continue;
         }
+        iFrom = Math.min(iFrom, i);
+        jFrom = Math.min(jFrom, j);
+        iTo = Math.max(iTo, i);
+        jTo = Math.max(jTo, j);
       }
     }
+    Rectangle changed = iTo < 0 ? null : new Rectangle(iFrom * tileWidth, jFrom * tileHeight,
+        (iTo - iFrom + 1) * tileWidth, (jTo - jFrom + 1) * tileHeight);
+    if (last.heroOnInfo() != frame.heroOnInfo()) {
+      changed = changed == null ? new Rectangle(INFO_BOX) : changed.union(INFO_BOX);
+    }
+    return changed;
   }
 
   /**
@@ -286,7 +356,7 @@ public class MazeRenderer extends JPanel {
   private void drawInfo(Graphics g) {
     //draw the box
     BufferedImage box = getImage("popUp");
-    g.drawImage(box, 250, 100, 200, 200, null);
+    g.drawImage(box, INFO_BOX.x, INFO_BOX.y, INFO_BOX.width, INFO_BOX.height, null);
     //draw the message in the box
     String message1 = "find the keys and dont";
     String message2 = "let the time run out";
@@ -341,6 +411,30 @@ public class MazeRenderer extends JPanel {
     this.domain = maze;
   }
 
+  /**
+   * show a new snapshot of the game, in place of the last one. may be called from any thread. only
+   * the part of the panel that looks different than in the last snapshot is repainted, and nothing
+   * is if the game looks the same.
+   *
+   * @param frame the snapshot to show
+   */
+  public void show(RenderSnapshot frame) {
+    RenderSnapshot last = snapshot.getAndSet(frame);
+    Rectangle changed = changedArea(last, frame);
+    if (changed != null) {
+      repaint(changed);
+    }
+  }
+
+  /**
+   * get the snapshot of the game being shown.
+   *
+   * @return the last snapshot shown, or an empty one if none has been
+   */
+  public RenderSnapshot getSnapshot() {
+    return snapshot.get();
+  }
+
   //get list of TexturePacks
 
   /**
@@ -357,8 +451,9 @@ public class MazeRenderer extends JPanel {
    */
   public void useNextTexturePack() {
     int nextIndex = (textures.indexOf(texturePack) + 1) % textures.size();
+    TexturePack old = texturePack;
     texturePack = textures.get(nextIndex);
-    reloadAllTexturePack();
+    texturePackChanged(old);
   }
 
   /**
@@ -369,8 +464,22 @@ public class MazeRenderer extends JPanel {
       if (nextIndex < 0) {
           nextIndex = textures.size() - 1;
       }
+    TexturePack old = texturePack;
     texturePack = textures.get(nextIndex);
+    texturePackChanged(old);
+  }
+
+  /**
+   * reload the images of a new texture pack, and repaint everything drawn with them. a snapshot
+   * looks the same in every pack, so showing the next one would not repaint a game standing still.
+   * panels drawn with the texture pack (e.g. the inventory) listen for the "texturePack" property.
+   *
+   * @param old the texture pack used before
+   */
+  private void texturePackChanged(TexturePack old) {
     reloadAllTexturePack();
+    repaint();
+    firePropertyChange("texturePack", old, texturePack);
   }
 
   /**
@@ -378,8 +487,7 @@ public class MazeRenderer extends JPanel {
    */
   public void increaseViewDistance() {
     //the min and max render size
-    int maxRenderSize = 50;
-    if (renderSize < maxRenderSize) {
+    if (renderSize < MAX_RENDER_SIZE) {
       renderSize++;
     }
   }
@@ -0,0 +1,252 @@
+package nz.ac.vuw.ecs.swen225.gp6.renderer;
+
+import java.util.Arrays;
+import java.util.List;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Domain;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Maze;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.Tile;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.TileType;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.Hero;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Utility.Direction;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Utility.Loc;
+
+/**
+ * An immutable picture of the game after a tick, for the renderer to paint from. It is made by
+ * whichever thread is running the game, and holds only what is painted: the tiles in view around
+ * the hero, the way the hero faces, the inventory, and the level, treasures and time left. The
+ * renderer never reads the game itself, so the game can go on ticking while the last snapshot is
+ * painted.
+ *
+ * @author Loki
+ */
+public final class RenderSnapshot {
+
+  //----------------------------fields------------------------------------------------------------------------------//
+  //the one cell of each tile type whose image is decided by its type, by ordinal
+  private static final Cell[] plainCells = Arrays.stream(TileType.values())
+      .map(type -> new Cell(type, null)).toArray(Cell[]::new);
+  private static final Cell periphery = Cell.of(TileType.Periphery);
+
+  /**
+   * A snapshot with no game in it, painted as periphery, before the first game is shown.
+   */
+  public static final RenderSnapshot EMPTY = new RenderSnapshot(0, 0, 0, 0, 0, new Cell[0],
+      Direction.None, List.of(), 0, 0, 0, false);
+
+  private final int left; //maze x of the first tile taken
+  private final int top; //maze y of the first tile taken
+  private final int span; //tiles taken across and down
+  private final int heroX; //maze x of the hero
+  private final int heroY; //maze y of the hero
+  private final Cell[] cells; //the tiles taken, a column of span at a time
+  private final Direction heroFacing; //the way the hero faces
+  private final List<Cell> inventory; //the items in the inventory, in order
+  private final int level; //the current level
+  private final int treasuresLeft; //the treasures left in the level
+  private final long timeLeft; //the time left in the level in nanoseconds
+  private final boolean heroOnInfo; //if the hero stands on the info tile
+
+//----------------------------------Constructor-----------------------------------------------------------//
+
+  private RenderSnapshot(int left, int top, int span, int heroX, int heroY, Cell[] cells,
+      Direction heroFacing, List<Cell> inventory, int level, int treasuresLeft, long timeLeft,
+      boolean heroOnInfo) {
+    this.left = left;
+    this.top = top;
+    this.span = span;
+    this.heroX = heroX;
+    this.heroY = heroY;
+    this.cells = cells;
+    this.heroFacing = heroFacing;
+    this.inventory = inventory;
+    this.level = level;
+    this.treasuresLeft = treasuresLeft;
+    this.timeLeft = timeLeft;
+    this.heroOnInfo = heroOnInfo;
+  }
+
+  /**
+   * take a snapshot of a game. must be called on the thread running the game, between ticks. only
+   * the tiles in view are read from the maze, so it costs the view distance, not the level size.
+   *
+   * @param game         the game
+   * @param timeLeft     the time left in the current level in nanoseconds
+   * @param viewDistance the number of tiles in view across and down
+   * @return the snapshot
+   */
+  public static RenderSnapshot of(Domain game, long timeLeft, int viewDistance) {
+    Maze maze = game.getCurrentMaze();
+    Tile heroTile = maze.getTileOfType(TileType.Hero);
+    Loc hero = maze.getLocOfType(TileType.Hero);
+    if (hero == null) { //a lost game may have no hero left, the view is centred on the corner
+      hero = new Loc(0, 0);
+    }
+    Direction facing = heroTile instanceof Hero h ? h.dir() : Direction.None;
+    boolean onInfo = heroTile instanceof Hero h && h.tileOn().type() == TileType.Info;
+
+    int span = Math.max(1, Math.min(viewDistance, MazeRenderer.MAX_RENDER_SIZE));
+    int left = hero.x() - span / 2;
+    int top = hero.y() - span / 2;
+    Cell[] cells = new Cell[span * span];
+    Arrays.fill(cells, periphery); //the cells off the maze are left as periphery
+    maze.visitWindow(left, top, span, span, (x, y, type) ->
+        cells[(x - left) * span + (y - top)] = cellAt(maze, x, y, type));
+    List<Cell> inventory = game.getInventory().stream().map(Cell::of).toList();
+    return new RenderSnapshot(left, top, span, hero.x(), hero.y(), cells, facing, inventory,
+        game.getCurrentLevel(), game.getTreasuresLeft(), timeLeft, onInfo);
+  }
+
+  /**
+   * get the cell of a tile in a maze, only making the tile if its image depends on more than its
+   * type.
+   *
+   * @param maze the maze
+   * @param x    x coord in the maze
+   * @param y    y coord in the maze
+   * @param type the type of the tile, null if there is none
+   * @return the cell
+   */
+  private static Cell cellAt(Maze maze, int x, int y, TileType type) {
+    if (type == null) {
+      return Cell.of(TileType.Null);
+    }
+    return Cell.isPlain(type) ? Cell.of(type) : Cell.of(maze.getTileAt(x, y));
+  }
+
+//--------------------------------------getters----------------------------------------------------------//
+
+  /**
+   * get the cell at a location in the maze.
+   *
+   * @param x x coord in the maze
+   * @param y y coord in the maze
+   * @return the cell there, periphery if it is outside the maze or too far from the hero
+   */
+  public Cell cellAt(int x, int y) {
+    int i = x - left;
+    int j = y - top;
+    if (i < 0 || j < 0 || i >= span || j >= span) {
+      return periphery;
+    }
+    return cells[i * span + j];
+  }
+
+  /**
+   * get the x coord of the hero in the maze.
+   *
+   * @return heroX
+   */
+  public int heroX() {
+    return heroX;
+  }
+
+  /**
+   * get the y coord of the hero in the maze.
+   *
+   * @return heroY
+   */
+  public int heroY() {
+    return heroY;
+  }
+
+  /**
+   * get the way the hero faces.
+   *
+   * @return heroFacing
+   */
+  public Direction heroFacing() {
+    return heroFacing;
+  }
+
+  /**
+   * get the items in the inventory, in order.
+   *
+   * @return inventory
+   */
+  public List<Cell> inventory() {
+    return inventory;
+  }
+
+  /**
+   * get the current level.
+   *
+   * @return level
+   */
+  public int level() {
+    return level;
+  }
+
+  /**
+   * get the treasures left in the level.
+   *
+   * @return treasuresLeft
+   */
+  public int treasuresLeft() {
+    return treasuresLeft;
+  }
+
+  /**
+   * get the time left in the level.
+   *
+   * @return timeLeft in nanoseconds
+   */
+  public long timeLeft() {
+    return timeLeft;
+  }
+
+  /**
+   * get if the hero stands on the info tile.
+   *
+   * @return heroOnInfo
+   */
+  public boolean heroOnInfo() {
+    return heroOnInfo;
+  }
+
+//--------------------------------------cells----------------------------------------------------------//
+
+  /**
+   * what is painted for a tile: its type, and the name of its image for tiles whose image is not
+   * decided by their type alone (e.g. custom tiles).
+   *
+   * @param type      the type of the tile
+   * @param imageName the name of the tile's image, null if its type decides its image
+   */
+  public record Cell(TileType type, String imageName) {
+
+    /**
+     * get the cell of a tile type whose image is decided by its type. cells of the same type are
+     * shared.
+     *
+     * @param type the type
+     * @return the cell
+     */
+    static Cell of(TileType type) {
+      return plainCells[type.ordinal()];
+    }
+
+    /**
+     * get the cell of a tile.
+     *
+     * @param tile the tile
+     * @return the cell
+     */
+    static Cell of(Tile tile) {
+      return isPlain(tile.type()) ? of(tile.type()) : new Cell(tile.type(), tile.info()
+          .getImageName());
+    }
+
+    /**
+     * find out if the image of a tile type is decided by the type alone.
+     *
+     * @param type the type
+     * @return true if it is
+     */
+    static boolean isPlain(TileType type) {
+      return switch (type) {
+        case Hero, Other, Null -> false;
+        default -> true;
+      };
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package nz.ac.vuw.ecs.swen225.gp6.renderer;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.image.BufferedImage;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * keeps images scaled to one size, made compatible with the screen they are drawn on, so drawing
+ * them is a plain copy instead of a rescale of the png every frame. the images are made the first
+ * time they are drawn at a size, and all dropped when the size, the texture pack or the screen
+ * changes. only used on the event dispatch thread.
+ *
+ * @author Loki
+ */
+final class ScaledImages {
+
+  //----------------------------fields------------------------------------------------------------------------------//
+  private final Map<BufferedImage, BufferedImage> scaled = new IdentityHashMap<>(); //by original
+  private TexturePack texturePack; //the texture pack the images are from
+  private GraphicsConfiguration screen; //the screen the images are made for
+  private int width; //the width the images are scaled to
+  private int height; //the height the images are scaled to
+
+//--------------------------------------methods----------------------------------------------------------//
+
+  /**
+   * get an image scaled to a size, to draw with a graphics object without scaling it again.
+   *
+   * @param image  the image at its own size
+   * @param width  the width to scale it to
+   * @param height the height to scale it to
+   * @param g      the graphics object it will be drawn with
+   * @return the scaled image, null if the image is null or the size is empty
+   */
+  BufferedImage get(BufferedImage image, int width, int height, Graphics g) {
+    if (image == null || width <= 0 || height <= 0) {
+      return null;
+    }
+    GraphicsConfiguration gc = g instanceof Graphics2D g2 ? g2.getDeviceConfiguration() : null;
+    if (width != this.width || height != this.height || gc != screen
+        || MazeRenderer.getTexturePack() != texturePack) {
+      scaled.clear();
+      this.width = width;
+      this.height = height;
+      this.screen = gc;
+      this.texturePack = MazeRenderer.getTexturePack();
+    }
+    return scaled.computeIfAbsent(image, this::scale);
+  }
+
+  /**
+   * scale an image to the current size.
+   *
+   * @param image the image at its own size
+   * @return the scaled image
+   */
+  private BufferedImage scale(BufferedImage image) {
+    BufferedImage img = screen == null
+        ? new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB)
+        : screen.createCompatibleImage(width, height, image.getTransparency());
+    Graphics2D g = img.createGraphics();
+    g.drawImage(image, 0, 0, width, height, null); //scaled the same way drawing it was
+    g.dispose();
+    return img;
+  }
+}
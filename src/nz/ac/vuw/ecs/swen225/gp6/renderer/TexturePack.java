@@ -5,8 +5,11 @@ import java.awt.Font;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.imageio.ImageIO;
 import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.Tile;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.TileType;
 
 /**
  * This class is for holding all the images used in the game.
@@ -123,6 +126,16 @@ public class TexturePack {
     return Images.getImage(tile);
   }
 
+  /**
+   * get image for a cell of a render snapshot.
+   *
+   * @param cell the cell
+   * @return the BufferedImage of the cell
+   */
+  public BufferedImage getImage(RenderSnapshot.Cell cell) {
+    return Images.getImage(cell.type(), cell.imageName());
+  }
+
   /**
    * get image from string.
    *
@@ -269,6 +282,8 @@ public class TexturePack {
      */
     PopUp("popUp");
 
+    //the custom images read so far, by name, so they are read from disk once
+    private static final Map<String, BufferedImage> customImages = new ConcurrentHashMap<>();
     //name of the image
     private String name;
     //the image we store in ram.
@@ -301,7 +316,19 @@ public class TexturePack {
      * @return BufferedImage
      */
     public static BufferedImage getImage(Tile tile) {
-      return switch (tile.type()) {
+      return getImage(tile.type(), tile.info().getImageName());
+    }
+
+    /**
+     * get the image for a tile type, and the image name of the tile for types whose image is not
+     * decided by the type alone.
+     *
+     * @param type      the type of the tile
+     * @param imageName the name of the tile's image
+     * @return BufferedImage
+     */
+    public static BufferedImage getImage(TileType type, String imageName) {
+      return switch (type) {
         case Floor -> getImage(Empty_tile);
         case Empty -> Images.Empty_tile.getImg();
         case Wall -> Images.Wall.getImg();
@@ -317,7 +344,7 @@ public class TexturePack {
         case Coin -> Images.Coin.getImg();
         case Periphery -> Images.Pattern.getImg();
         case Info -> Images.InfoTile.getImg();
-        default -> Images.loadCustom(tile.info().getImageName());
+        default -> Images.loadCustom(imageName);
       };
     }
 
@@ -338,7 +365,7 @@ public class TexturePack {
     }
 
     /**
-     * load the image from the file.
+     * load the image from the file, the first time it is asked for.
      *
      * @param path the path of the image
      * @return BufferedImage
@@ -349,6 +376,19 @@ public class TexturePack {
           return img.getImg();
         }
       }
+      if (path == null) {
+        return readCustom(null);
+      }
+      return customImages.computeIfAbsent(path, Images::readCustom);
+    }
+
+    /**
+     * read a custom image from the disk, or the default one if there is none.
+     *
+     * @param path the path of the image
+     * @return BufferedImage
+     */
+    private static BufferedImage readCustom(String path) {
       try {
         return ImageIO.read(new File("res/customTextures/" + path + ".png"));
       } catch (IOException e) {
@@ -368,6 +408,7 @@ public class TexturePack {
       for (Images i : Images.values()) {
         i.img = i.loadImg(i.getName());
       }
+      customImages.clear();
     }
 
     /**
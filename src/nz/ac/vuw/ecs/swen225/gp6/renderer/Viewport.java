@@ -11,6 +11,11 @@ import nz.ac.vuw.ecs.swen225.gp6.domain.Tiles.Hero;
  * @author Loki
  */
 public class Viewport {
+
+  //----------------------------fields------------------------------------------------------------------------------//
+  //the tile shown off the edges of the maze, shared by every viewport
+  private static final Tile periphery = TileType.makeTile(TileType.Periphery, new TileInfo(null));
+
 //-----------------------------------------------constructor---------------------------------------------------------------//
 
   /**
@@ -27,7 +32,6 @@ public class Viewport {
     int xStart = heroX - renderSize / 2;
     int yStart = heroY - renderSize / 2;
     Tile[][] viewport = new Tile[renderSize][renderSize];
-    Tile periphery = TileType.makeTile(TileType.Periphery, new TileInfo(null));
     for (int i = 0; i < renderSize; i++) {
       for (int j = 0; j < renderSize; j++) {
         if (xStart + i < 0 || xStart + i >= gameArray.length || yStart + j < 0
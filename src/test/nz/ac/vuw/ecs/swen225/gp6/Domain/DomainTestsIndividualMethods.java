@@ -2,6 +2,7 @@ package test.nz.ac.vuw.ecs.swen225.gp6.Domain;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -1272,6 +1273,116 @@ public class DomainTestsIndividualMethods {
 
   }
 
+  @Test
+  public void testDomainTick() {
+    Maze m = DomainTestsThruMoves.mazeParser("""
+        0|/|/|/|/|/|
+        1|/|_|_|$|/|
+        2|/|_|H|_|/|
+        3|/|X|_|_|/|
+        4|/|/|/|/|/|
+          0 1 2 3 4""");
+    Domain d = new Domain(new ArrayList<>(List.of(new Level(m, 1))), 1);
+
+    assertEquals(0, d.getTick());
+    d.moveLeft();
+    d.pingDomain();
+    d.pingDomain();
+    assertEquals(2, d.getTick());
+
+    Domain copy = d.snapshot();
+    assertEquals(2, copy.getTick());
+    copy.pingDomain();
+    assertEquals(3, copy.getTick());
+    assertEquals(2, d.getTick()); //the copy ticks on its own
+
+    d.setTick(10);
+    assertEquals(10, d.getTick());
+    assertThrows(IllegalArgumentException.class, () -> d.setTick(-1));
+  }
+
+  @Test
+  public void testPingOnlyActiveTiles() {
+    Maze m = DomainTestsThruMoves.mazeParser("""
+        0|/|/|/|/|/|
+        1|/|_|_|$|/|
+        2|/|_|H|_|/|
+        3|/|X|_|_|/|
+        4|/|/|/|/|/|
+          0 1 2 3 4""");
+    Domain d = new Domain(new ArrayList<>(List.of(new Level(m, 1))), 1);
+
+    //a tile that counts its pings, set after the maze is made
+    int[] pings = {0};
+    Tile counter = new AbstractTile(new TileInfo(null)) {
+      @Override
+      public TileType type() {
+        return TileType.Other;
+      }
+
+      @Override
+      public void ping(Domain d) {
+        pings[0]++;
+      }
+    };
+    m.setTileAt(new Loc(1, 1), counter);
+    d.pingDomain();
+    d.pingDomain();
+    assertEquals(2, pings[0]);
+
+    //once it is replaced it is not pinged any more, even though it still exists
+    m.setTileAt(new Loc(1, 1), TileType.Floor);
+    d.pingDomain();
+    assertEquals(2, pings[0]);
+
+    //a copy of the maze pings the same tiles
+    m.setTileAt(new Loc(3, 3), counter);
+    Maze copy = m.copy();
+    copy.pingMaze(new Domain(new ArrayList<>(List.of(new Level(copy, 1))), 1));
+    assertEquals(3, pings[0]);
+  }
+
+  @Test
+  public void testStateHash() {
+    String board = """
+        0|/|/|/|/|/|
+        1|/|_|_|$|/|
+        2|/|_|H|_|/|
+        3|/|X|_|_|/|
+        4|/|/|/|/|/|
+          0 1 2 3 4""";
+    Maze m = DomainTestsThruMoves.mazeParser(board);
+    long start = m.stateHash();
+    assertEquals(start, DomainTestsThruMoves.mazeParser(board).stateHash());
+
+    //setting a tile changes the hash, setting it back restores it
+    m.setTileAt(new Loc(1, 1), TileType.Wall);
+    assertNotEquals(start, m.stateHash());
+    m.setTileAt(new Loc(1, 1), TileType.Floor);
+    assertEquals(start, m.stateHash());
+
+    //a pre-tick view hashes the maze as it was, and rolling back puts the hash back
+    Maze view = m.beginTick();
+    m.setTileAt(new Loc(3, 1), TileType.Floor);
+    assertEquals(start, view.stateHash());
+    assertNotEquals(start, m.stateHash());
+    m.rollbackTick();
+    assertEquals(start, m.stateHash());
+
+    //two games played the same way share the hash, moving the hero changes it
+    Domain a = new Domain(new ArrayList<>(List.of(new Level(m, 1))), 1);
+    Domain b = new Domain(new ArrayList<>(List.of(
+        new Level(DomainTestsThruMoves.mazeParser(board), 1))), 1);
+    assertEquals(a.stateHash(), b.stateHash());
+    a.moveLeft();
+    a.pingDomain();
+    assertNotEquals(a.stateHash(), b.stateHash());
+    b.moveLeft();
+    b.pingDomain();
+    assertEquals(a.stateHash(), b.stateHash());
+    assertEquals(a.stateHash(), a.snapshot().stateHash());
+  }
+
   @Test
   public void testMazeMethods() {
     Maze m = DomainTestsThruMoves.mazeParser("""
@@ -1329,6 +1440,81 @@ public class DomainTestsIndividualMethods {
         });
   }
 
+  @Test
+  public void testMazeTileTypeIndex() {
+    Maze m = DomainTestsThruMoves.mazeParser("""
+        0|/|/|/|/|/|
+        1|/|$|_|X|/|
+        2|/|_|H|_|/|
+        3|/|$|_|_|/|
+        4|/|/|/|/|/|
+          0 1 2 3 4""");
+
+    //index is built from the tile array
+    assertEquals(new Loc(2, 2), m.getLocOfType(TileType.Hero));
+    assertTrue(m.getTileOfType(TileType.Hero) instanceof Hero);
+    assertEquals(2, m.getTileCount(TileType.Coin));
+    assertEquals(List.of(m.getTileAt(1, 1), m.getTileAt(1, 3)),
+        m.getAllTilesOfType(TileType.Coin));
+    assertEquals(16, m.getTileCount(TileType.Wall)); //not indexed, still found
+    assertTrue(m.getTileOfType(TileType.ExitDoorOpen) instanceof Null);
+    assertNull(m.getLocOfType(TileType.ExitDoorOpen));
+
+    //index follows changes, and the pre-tick view shows the maze as it was
+    Maze view = m.beginTick();
+    Tile hero = m.getTileAt(2, 2);
+    m.setTileAt(new Loc(2, 2), TileType.Floor);
+    m.setTileAt(new Loc(1, 1), hero);
+    assertEquals(new Loc(1, 1), m.getLocOfType(TileType.Hero));
+    assertEquals(1, m.getTileCount(TileType.Coin));
+    assertEquals(new Loc(2, 2), view.getLocOfType(TileType.Hero));
+    assertEquals(2, view.getTileCount(TileType.Coin));
+
+    //rolling back puts the index back too
+    m.rollbackTick();
+    assertEquals(new Loc(2, 2), m.getLocOfType(TileType.Hero));
+    assertEquals(2, m.getTileCount(TileType.Coin));
+  }
+
+  @Test
+  public void testMazeVisitWindow() {
+    Maze m = DomainTestsThruMoves.mazeParser("""
+        0|/|/|/|/|/|
+        1|/|$|_|X|/|
+        2|/|_|H|_|/|
+        3|/|$|_|_|/|
+        4|/|/|/|/|/|
+          0 1 2 3 4""");
+
+    //a window inside the maze visits every cell of it, column by column
+    List<String> visited = new ArrayList<>();
+    m.visitWindow(1, 1, 2, 2, (x, y, type) -> visited.add(x + "," + y + " " + type));
+    assertEquals(List.of("1,1 Coin", "1,2 Floor", "2,1 Floor", "2,2 Hero"), visited);
+
+    //a window over the edge of the maze only visits the cells in the maze
+    List<Loc> locs = new ArrayList<>();
+    m.visitWindow(-2, 3, 4, 5, (x, y, type) -> locs.add(new Loc(x, y)));
+    assertEquals(List.of(new Loc(0, 3), new Loc(0, 4), new Loc(1, 3), new Loc(1, 4)), locs);
+
+    //a packed maze gives the same types without making its tiles
+    Maze packed = Maze.packed(m.width(), m.height());
+    packed.setTileAt(new Loc(1, 1), TileType.Wall);
+    List<TileType> types = new ArrayList<>();
+    packed.visitWindow(0, 0, 2, 2, (x, y, type) -> types.add(type));
+    assertEquals(List.of(TileType.Floor, TileType.Floor, TileType.Floor, TileType.Wall), types);
+
+    m.visitWindow(10, 10, 3, 3, (x, y, type) -> {
+      throw new AssertionError("window is off the maze");
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      m.visitWindow(0, 0, -1, 2, (x, y, type) -> {
+      });
+    });
+    assertThrows(NullPointerException.class, () -> {
+      m.visitWindow(0, 0, 1, 1, null);
+    });
+  }
+
   //UTILITY CLASSES:
   @Test
   public void testDirectionTransformLoc() {
@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.util.List;
 import nz.ac.vuw.ecs.swen225.gp6.domain.Domain;
+import nz.ac.vuw.ecs.swen225.gp6.domain.IntegrityCheck.CheckGame;
 import nz.ac.vuw.ecs.swen225.gp6.domain.Inventory;
 import nz.ac.vuw.ecs.swen225.gp6.domain.Level;
 import nz.ac.vuw.ecs.swen225.gp6.domain.Maze;
@@ -69,6 +70,33 @@ public class DomainTestsThruMoves {
     assertEquals(output, maze.toString());
   }
 
+  /**
+   * does a sequence of moves on a given maze, and on a packed copy of it, and checks both end up as
+   * the same maze with the same coins collected.
+   *
+   * @param input a string representing initial maze
+   * @param moves a string representing sequence of moves
+   */
+  public static void testHarnessPacked(String input, String moves) {
+    Maze maze = mazeParser(input);
+    Maze packed = Maze.packed(maze.width(), maze.height());
+    for (int x = 0; x < maze.width(); x++) {
+      for (int y = 0; y < maze.height(); y++) {
+        packed.setTileAt(new Loc(x, y), maze.getTileAt(x, y));
+      }
+    }
+    maze = mazeParser(input);
+    assertEquals(maze.toString(), packed.toString());
+
+    Domain domain = new Domain(List.of(maze), new Inventory(8), 1);
+    Domain packedDomain = new Domain(List.of(packed), new Inventory(8), 1);
+    doMoves(domain, moves);
+    doMoves(packedDomain, moves);
+    assertEquals(maze.toString(), packed.toString());
+    assertEquals(domain.getInv().coins(), packedDomain.getInv().coins());
+    assertEquals(domain.getInventory().size(), packedDomain.getInventory().size());
+  }
+
   /**
    * makes tile object from given character, with given info (e.g location x and y)
    *
@@ -286,6 +314,50 @@ public class DomainTestsThruMoves {
     testHarnessValid(input, moves, output);
   }
 
+  @Test
+  public void testCollectAllCoinsFullScan() {
+    //same as collecting all coins, but the integrity checks recount the coins and doors by
+    //scanning the whole maze, and check the maze's own counts against it
+    CheckGame.setFullScan(true);
+    try {
+      testCollectAllCoins();
+    } finally {
+      CheckGame.setFullScan(false);
+    }
+  }
+
+  @Test
+  public void testPackedMaze() {
+    //the same moves on a packed maze give the same maze as on a normal one
+    //keys and locks:
+    testHarnessPacked("""
+        0|_|/|/|/|/|/|/|/|/|_|
+        1|/|$|_|/|X|_|/|_|$|/|
+        2|/|_|_|/|_|_|O|_|_|/|
+        3|/|/|B|/|_|_|/|/|/|/|
+        4|/|_|_|_|g|b|_|_|_|/|
+        5|/|_|_|_|o|y|_|_|_|/|
+        6|/|/|/|/|_|_|/|G|/|/|
+        7|/|_|_|Y|H|_|/|_|_|/|
+        8|/|$|_|/|_|_|/|_|$|/|
+        9|_|/|/|/|/|/|/|/|/|_|
+          0 1 2 3 4 5 6 7 8 9""", "UUURDDDLLLRRRUURRDDUULLUUURRLLDDLLLUU");
+
+    //coins and exit door:
+    testHarnessPacked("""
+        0|_|/|/|/|/|/|/|/|/|_|
+        1|/|$|_|/|X|_|/|_|$|/|
+        2|/|_|_|/|_|_|_|_|_|/|
+        3|/|/|_|/|_|_|/|/|/|/|
+        4|/|_|_|_|_|_|_|_|_|/|
+        5|/|_|_|_|H|_|_|_|_|/|
+        6|/|/|/|/|_|_|/|_|/|/|
+        7|/|_|_|_|_|_|/|_|_|/|
+        8|/|$|_|/|_|_|/|_|$|/|
+        9|_|/|/|/|/|/|/|/|/|_|
+          0 1 2 3 4 5 6 7 8 9""", "ULLUUULRDDDRRDDDLLLDURRRRUURRDDDRLUUULLLUUURRRRULDL");
+  }
+
   @Test
   public void testExitDoorAndWalls() {
     String input = """
@@ -28,6 +28,9 @@ import javax.swing.SwingUtilities;
 import nz.ac.vuw.ecs.swen225.gp6.app.App;
 import nz.ac.vuw.ecs.swen225.gp6.app.gui.GUI;
 import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Actions;
+import nz.ac.vuw.ecs.swen225.gp6.domain.IntegrityCheck.CheckGame;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
 import org.junit.Test;
 
 /**
@@ -53,6 +56,11 @@ public class FuzzTest {
    */
   static List<Actions> test1HC = new ArrayList<>();
 
+  /**
+   * Whether the integrity checks scanned the whole maze before these tests, put back after them.
+   */
+  static boolean fullScanBefore;
+
   static {
     try {
       robot = new Robot();
@@ -518,6 +526,25 @@ public class FuzzTest {
     System.exit(0);
   }
 
+  /**
+   * Scans the whole maze on every integrity check during these tests, to catch the maze's tile
+   * counts going wrong.
+   */
+  @BeforeClass
+  public static void setUpFullScan() {
+    fullScanBefore = CheckGame.isFullScan();
+    CheckGame.setFullScan(true);
+  }
+
+  /**
+   * Puts the integrity checks back as they were, so tests run after these don't scan the whole
+   * maze.
+   */
+  @AfterClass
+  public static void tearDownFullScan() {
+    CheckGame.setFullScan(fullScanBefore);
+  }
+
   @Test
   public void test_level1() {
     testLevel1();
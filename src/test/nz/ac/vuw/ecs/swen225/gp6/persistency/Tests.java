@@ -23,7 +23,14 @@ import static nz.ac.vuw.ecs.swen225.gp6.app.utilities.Actions.SAVE_GAME;
 import static nz.ac.vuw.ecs.swen225.gp6.app.utilities.Actions.TO_LEVEL_1;
 import static nz.ac.vuw.ecs.swen225.gp6.app.utilities.Actions.TO_LEVEL_2;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.awt.Rectangle;
 import java.awt.event.InputEvent;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -31,24 +38,46 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Actions;
 import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Configuration;
 import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Controller;
+import nz.ac.vuw.ecs.swen225.gp6.app.utilities.FixedStep;
+import nz.ac.vuw.ecs.swen225.gp6.app.utilities.HeadlessRunner;
 import nz.ac.vuw.ecs.swen225.gp6.app.utilities.Pair;
 import nz.ac.vuw.ecs.swen225.gp6.domain.Domain;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Inventory;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Maze;
 import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.TileInfo;
+import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.Tile;
 import nz.ac.vuw.ecs.swen225.gp6.domain.TileAnatomy.TileType;
+import nz.ac.vuw.ecs.swen225.gp6.domain.Utility.Direction;
 import nz.ac.vuw.ecs.swen225.gp6.domain.Utility.Loc;
 import nz.ac.vuw.ecs.swen225.gp6.persistency.AppPersistency;
 import nz.ac.vuw.ecs.swen225.gp6.persistency.DomainPersistency;
+import nz.ac.vuw.ecs.swen225.gp6.persistency.DomainPersistency.SaveFormat;
 import nz.ac.vuw.ecs.swen225.gp6.persistency.Interceptor;
 import nz.ac.vuw.ecs.swen225.gp6.persistency.Logging;
 import nz.ac.vuw.ecs.swen225.gp6.persistency.Logging.Log;
 import nz.ac.vuw.ecs.swen225.gp6.persistency.RecorderPersistency;
+import nz.ac.vuw.ecs.swen225.gp6.persistency.RecordingJournal;
+import nz.ac.vuw.ecs.swen225.gp6.persistency.SaveService;
+import nz.ac.vuw.ecs.swen225.gp6.recorder.ReplaySeeker;
+import nz.ac.vuw.ecs.swen225.gp6.recorder.datastructures.Keyframes;
+import nz.ac.vuw.ecs.swen225.gp6.recorder.datastructures.RecordTimeline;
+import nz.ac.vuw.ecs.swen225.gp6.recorder.datastructures.ReplayTimeline;
+import nz.ac.vuw.ecs.swen225.gp6.renderer.MazeRenderer;
+import nz.ac.vuw.ecs.swen225.gp6.renderer.RenderSnapshot;
 import org.dom4j.DocumentException;
 import org.junit.Assert;
 import org.junit.jupiter.api.Test;
@@ -73,6 +102,143 @@ public class Tests {
     assertEquals(domain.toString(), domain2.toString());
   }
 
+  @Test
+  public void testSaveFormats() throws IOException, DocumentException {
+    Domain domain = DomainPersistency.getInitial();
+    domain.moveRight();
+    domain.pingDomain();
+    domain.getInv().addItem(TileType.makeTile(TileType.GreenKey, new TileInfo(new Loc(0, 0))));
+
+    DomainPersistency.save(domain, 2, SaveFormat.XML);
+    assertEquals(SaveFormat.XML, DomainPersistency.formatOf(2));
+    long xmlSize = SaveFormat.XML.file(2).length();
+    assertEquals(domain.toString(), DomainPersistency.loadSave(2).toString());
+    assertEquals(1, DomainPersistency.loadSave(2).getTick());
+
+    DomainPersistency.save(domain, 2, SaveFormat.BINARY);
+    assertEquals(SaveFormat.BINARY, DomainPersistency.formatOf(2));
+    assertFalse(SaveFormat.XML.file(2).exists());
+    assertTrue(SaveFormat.BINARY.file(2).length() * 10 < xmlSize);
+    Domain loaded = DomainPersistency.loadSave(2);
+    assertEquals(domain.toString(), loaded.toString());
+    assertEquals(domain.getGameState(), loaded.getGameState());
+    assertEquals(domain.getCurrentLevel(), loaded.getCurrentLevel());
+    assertEquals(domain.getTick(), loaded.getTick());
+
+    assertTrue(DomainPersistency.delete(2));
+    assertNull(DomainPersistency.formatOf(2));
+  }
+
+  @Test
+  public void testLargeBinarySave() throws IOException, DocumentException {
+    int size = 300;
+    Maze maze = Maze.packed(size, size);
+    for (int i = 0; i < size; i++) {
+      maze.setTileAt(new Loc(i, 0), TileType.Wall);
+      maze.setTileAt(new Loc(i, size - 1), TileType.Wall);
+      maze.setTileAt(new Loc(i, i), TileType.Coin);
+    }
+    maze.setTileAt(new Loc(1, 2), TileType.Hero);
+    maze.setTileAt(new Loc(size - 2, 3), TileType.ExitDoor);
+    maze.setTileAt(new Loc(5, 3),
+        TileType.makeTile(TileType.Info, new TileInfo(new Loc(5, 3), 0, "", "a hint")));
+    Domain domain = new Domain(List.of(maze), new Inventory(8), 1);
+
+    DomainPersistency.save(domain, 2);
+    Domain loaded = DomainPersistency.loadSave(2);
+    DomainPersistency.delete(2);
+
+    assertEquals(domain.getCurrentMaze().toString(), loaded.getCurrentMaze().toString());
+    assertEquals(size, loaded.getCurrentMaze().getTileCount(TileType.Coin));
+    assertEquals("a hint",
+        loaded.getCurrentMaze().getTileAt(5, 3).info().message());
+  }
+
+  @Test
+  public void testCorruptBinarySave() throws IOException {
+    DomainPersistency.save(DomainPersistency.getInitial(), 2);
+    byte[] data = Files.readAllBytes(SaveFormat.BINARY.file(2).toPath());
+    Files.write(SaveFormat.BINARY.file(2).toPath(), Arrays.copyOf(data, data.length / 2));
+    try {
+      assertThrows(DocumentException.class, () -> DomainPersistency.loadSave(2));
+    } finally {
+      DomainPersistency.delete(2);
+    }
+  }
+
+  @Test
+  public void testLevelPack() {
+    File pack = new File("res/levels/levels.pack");
+    pack.delete();
+
+    Domain parsed = DomainPersistency.getInitial();
+    assertTrue(pack.isFile());
+    Domain packed = DomainPersistency.getInitial();
+
+    assertEquals(parsed.toString(), packed.toString());
+    assertEquals(parsed.getCurrentTimeLimit(), packed.getCurrentTimeLimit());
+    assertTrue(packed.isLevelLoaded(1));
+    assertFalse(packed.isLevelLoaded(2));
+
+    parsed.setCurrentLevel(2);
+    packed.setCurrentLevel(2);
+    assertTrue(packed.isLevelLoaded(2));
+    assertEquals(parsed.toString(), packed.toString());
+  }
+
+  @Test
+  public void testLevelTemplatesFromPack() {
+    DomainPersistency.getInitial(); // makes the pack if there is none
+    File level = new File("res/levels/level1.xml");
+    long modified = level.lastModified();
+    try {
+      assertTrue(level.setLastModified(modified - 10_000));
+
+      // the kept levels are opened from the pack, which only decodes a level when a game needs it
+      Domain game = DomainPersistency.getInitial();
+      assertTrue(DomainPersistency.isInitialLevelLoaded(1));
+      assertFalse(DomainPersistency.isInitialLevelLoaded(2));
+      assertFalse(game.isLevelLoaded(2));
+
+      game.setCurrentLevel(2);
+      assertTrue(DomainPersistency.isInitialLevelLoaded(2));
+      assertTrue(game.isLevelLoaded(2));
+    } finally {
+      level.setLastModified(modified); // the level file is in the repository, leave it as it was
+    }
+  }
+
+  @Test
+  public void testStaleLevelPack() throws IOException {
+    File level = new File("res/levels/level1.xml");
+    DomainPersistency.getInitial();
+    File pack = new File("res/levels/levels.pack");
+    assertTrue(pack.setLastModified(level.lastModified() - 10_000));
+
+    // an older pack is made again from the level files
+    DomainPersistency.getInitial();
+    assertTrue(pack.lastModified() >= level.lastModified());
+    assertFalse(DomainPersistency.getInitial().isLevelLoaded(2));
+  }
+
+  @Test
+  public void testBackgroundSave() throws Exception {
+    Domain domain = DomainPersistency.getInitial();
+    String before = domain.toString();
+    AtomicReference<IOException> result = new AtomicReference<>(new IOException("not called"));
+
+    Future<?> save = SaveService.INSTANCE.save(domain, 2, result::set);
+    // the game goes on while it is saved
+    domain.moveRight();
+    domain.pingDomain();
+    save.get(10, TimeUnit.SECONDS);
+
+    assertNull(result.get());
+    assertFalse(new File("res/saves/2.bin.tmp").exists());
+    assertEquals(before, DomainPersistency.loadSave(2).toString());
+    DomainPersistency.delete(2);
+  }
+
   @Test
   public void deleteSave() throws IOException {
     DomainPersistency.delete(1);
@@ -113,10 +279,207 @@ public class Tests {
     timeline.add(new Pair<Long, Actions>(10L, Actions.MOVE_DOWN));
     timeline.add(new Pair<Long, Actions>(20L, Actions.MOVE_LEFT));
 
-    RecorderPersistency.saveTimeline(timeline, 1);
-    Stack<Pair<Long, Actions>> timeline2 = RecorderPersistency.loadTimeline(1);
+    // slot 1 holds a recording kept in the repository, which saving here would replace
+    try {
+      RecorderPersistency.saveTimeline(timeline, 2);
+      Stack<Pair<Long, Actions>> timeline2 = RecorderPersistency.loadTimeline(2);
+
+      assertEquals(timeline.toString(), timeline2.toString());
+    } finally {
+      RecorderPersistency.delete(2);
+    }
+  }
+
+  @Test
+  public void testRecordingFormats() throws IOException, DocumentException {
+    // a long recording, with the clock going back for a second level
+    Stack<Pair<Long, Actions>> timeline = new Stack<Pair<Long, Actions>>();
+    Actions[] moves = {MOVE_UP, MOVE_RIGHT, MOVE_DOWN, MOVE_LEFT};
+    for (int i = 0; i < 2000; i++) {
+      long time = (i % 1000) * 34_000_000L + (i * 7919L) % 1_000_000L;
+      timeline.add(new Pair<Long, Actions>(time, moves[(i * i) % moves.length]));
+    }
+
+    RecorderPersistency.saveTimeline(timeline, 2, SaveFormat.XML);
+    assertEquals(SaveFormat.XML, RecorderPersistency.formatOf(2));
+    long xmlSize = SaveFormat.XML.recording(2).length();
+    assertEquals(timeline, RecorderPersistency.loadTimeline(2));
+
+    RecorderPersistency.saveTimeline(timeline, 2, SaveFormat.BINARY);
+    assertEquals(SaveFormat.BINARY, RecorderPersistency.formatOf(2));
+    assertFalse(SaveFormat.XML.recording(2).exists());
+    assertTrue(SaveFormat.BINARY.recording(2).length() * 10 < xmlSize);
+    assertEquals(timeline, RecorderPersistency.loadTimeline(2));
+
+    assertTrue(RecorderPersistency.delete(2));
+    assertNull(RecorderPersistency.formatOf(2));
+  }
+
+  @Test
+  public void testRecordingCheckpoints() throws IOException, DocumentException {
+    List<Pair<Long, Actions>> timeline = List.of(new Pair<Long, Actions>(3L, MOVE_UP),
+        new Pair<Long, Actions>(40L, MOVE_LEFT));
+    List<Pair<Long, Long>> checkpoints = List.of(new Pair<Long, Long>(30L, 0x8000000000000001L),
+        new Pair<Long, Long>(60L, -2L), new Pair<Long, Long>(90L, 12345L));
+
+    try {
+      for (SaveFormat format : SaveFormat.values()) {
+        RecorderPersistency.saveTimeline(timeline, checkpoints, 2, format);
+        List<Pair<Long, Long>> loaded = new ArrayList<>();
+        assertTrue(RecorderPersistency.loadTimeline(2, (tick, action) -> {
+        }, (tick, hash) -> loaded.add(new Pair<Long, Long>(tick, hash))));
+        assertEquals(checkpoints, loaded);
+        assertEquals(timeline, RecorderPersistency.loadTimeline(2));
+      }
+    } finally {
+      RecorderPersistency.delete(2);
+    }
+  }
+
+  @Test
+  public void testCustomTilesLoadedOnce() {
+    // each load of the levels makes its own enemies, but of the one class loaded from the jar
+    Tile first = DomainPersistency.getInitial().getLevels().get(1).maze
+        .getTileThat(t -> t.type() == TileType.Other);
+    Tile second = DomainPersistency.getInitial().getLevels().get(1).maze
+        .getTileThat(t -> t.type() == TileType.Other);
+    assertEquals("custom.tiles.Enemy", first.getClass().getName());
+    assertNotSame(first, second);
+    assertSame(first.getClass(), second.getClass());
+
+    // a jar that changes is opened again, and the levels are made from its new classes
+    File jar = new File("res/levels/level2.jar");
+    long modified = jar.lastModified();
+    try {
+      assertTrue(jar.setLastModified(modified - 10_000));
+      Tile third = DomainPersistency.getInitial().getLevels().get(1).maze
+          .getTileThat(t -> t.type() == TileType.Other);
+      assertEquals("custom.tiles.Enemy", third.getClass().getName());
+      assertNotSame(first.getClass(), third.getClass());
+    } finally {
+      jar.setLastModified(modified); // the jar is in the repository, leave it as it was
+    }
+  }
+
+  @Test
+  public void testLevelTemplates() {
+    Domain played = DomainPersistency.getInitial();
+    String initial = played.toString();
+    Tile hero = played.getCurrentMaze().getTileThat(t -> t.type() == TileType.Hero);
+    played.moveRight();
+    played.pingDomain();
+    assertFalse(initial.equals(played.toString()));
+
+    // a new game is a copy of the levels as read, not of the game played before it
+    Domain fresh = DomainPersistency.getInitial();
+    assertEquals(initial, fresh.toString());
+    Tile freshHero = fresh.getCurrentMaze().getTileThat(t -> t.type() == TileType.Hero);
+    assertNotSame(hero, freshHero);
+    assertNotSame(hero.info(), freshHero.info());
+    assertNotSame(hero.info().loc(), freshHero.info().loc());
+
+    // the levels are read again once a level file changes
+    File level = new File("res/levels/level1.xml");
+    long modified = level.lastModified();
+    try {
+      assertTrue(level.setLastModified(modified - 10_000));
+      Domain reread = DomainPersistency.getInitial();
+      assertEquals(initial, reread.toString());
+      assertNotSame(freshHero,
+          reread.getCurrentMaze().getTileThat(t -> t.type() == TileType.Hero));
+    } finally {
+      level.setLastModified(modified);
+    }
+  }
 
-    assertEquals(timeline.toString(), timeline2.toString());
+  @Test
+  public void testCorruptBinaryRecording() throws IOException {
+    Stack<Pair<Long, Actions>> timeline = new Stack<Pair<Long, Actions>>();
+    for (int i = 0; i < 100; i++) {
+      timeline.add(new Pair<Long, Actions>(i * 100L, MOVE_UP));
+    }
+    RecorderPersistency.saveTimeline(timeline, 2);
+    byte[] data = Files.readAllBytes(SaveFormat.BINARY.recording(2).toPath());
+    Files.write(SaveFormat.BINARY.recording(2).toPath(), Arrays.copyOf(data, data.length - 3));
+    try {
+      assertThrows(DocumentException.class, () -> RecorderPersistency.loadTimeline(2));
+    } finally {
+      RecorderPersistency.delete(2);
+    }
+  }
+
+  @Test
+  public void testRecordingJournal() throws IOException {
+    Path path = Path.of("res/recordings/test-journal.bin");
+    List<Pair<Long, Actions>> timeline = new ArrayList<>();
+    RecordingJournal journal = new RecordingJournal(path);
+    try {
+      journal.start();
+      for (int i = 0; i < 1000; i++) {
+        timeline.add(new Pair<Long, Actions>(i * 34_000_000L, i % 2 == 0 ? MOVE_UP : MOVE_LEFT));
+        journal.append(i * 34_000_000L, timeline.get(i).value());
+      }
+      journal.close();
+      long length = Files.size(path);
+
+      // a batch cut short by a crash
+      Files.write(path, new byte[] {0, 0, 0, 40, 1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+      List<Pair<Long, Actions>> recovered = new ArrayList<>();
+      assertEquals(1000, RecordingJournal.recover(path,
+          (time, action) -> recovered.add(new Pair<Long, Actions>(time, action))));
+      assertEquals(timeline, recovered);
+      assertEquals(length, Files.size(path));
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  @Test
+  public void testRecordingJournalRestart() throws IOException {
+    Path path = Path.of("res/recordings/test-journal.bin");
+    RecordingJournal journal = new RecordingJournal(path);
+    try {
+      journal.start();
+      journal.append(0, MOVE_UP);
+      journal.append(34_000_000L, MOVE_LEFT);
+      // start does not wait for the writer, what is added after it still goes to the new journal
+      journal.start();
+      journal.append(68_000_000L, MOVE_DOWN);
+      journal.append(102_000_000L, MOVE_RIGHT);
+      journal.close();
+
+      List<Pair<Long, Actions>> recovered = new ArrayList<>();
+      assertEquals(2, RecordingJournal.recover(path,
+          (time, action) -> recovered.add(new Pair<Long, Actions>(time, action))));
+      assertEquals(List.of(new Pair<Long, Actions>(68_000_000L, MOVE_DOWN),
+          new Pair<Long, Actions>(102_000_000L, MOVE_RIGHT)), recovered);
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  @Test
+  public void testFixedStep() {
+    FixedStep step = new FixedStep(100);
+    step.restart(0);
+    assertEquals(0, step.advance(50));
+    assertEquals(1, step.advance(120)); // the 20 left over is kept for the next frame
+    assertEquals(1, step.advance(200));
+    assertEquals(0, step.getLateness());
+
+    // a stall is caught up a few ticks at a time, the rest is dropped
+    assertEquals(FixedStep.MAX_CATCH_UP, step.advance(200 + 100 * (FixedStep.MAX_CATCH_UP + 3)));
+    assertEquals(3, step.getDropped());
+    assertEquals(0, step.advance(1350));
+
+    // at 1.5 times the speed, three ticks are run in the time of two
+    step.setSpeed(1.5);
+    step.restart(0);
+    int ticks = 0;
+    for (int now = 10; now <= 2000; now += 10) {
+      ticks += step.advance(now);
+    }
+    assertEquals(30, ticks);
   }
 
   @Test
@@ -140,6 +503,23 @@ public class Tests {
     assertEquals(config.toString(), config2.toString());
   }
 
+  @Test
+  public void testConfigurationTickRate() throws IOException {
+    Configuration config = Configuration.getDefaultConfiguration();
+    assertEquals(Configuration.DEFAULT_TICK_RATE, config.getTickRate(), 0);
+    config.setTickRate(60);
+
+    AppPersistency.save(config);
+    Configuration config2 = AppPersistency.load();
+
+    assertEquals(60, config2.getTickRate(), 0);
+    assertEquals(config.toString(), config2.toString());
+    assertThrows(IllegalArgumentException.class, () -> config.setTickRate(0));
+    config.setTickRate(Configuration.MAX_TICK_RATE);
+    assertThrows(IllegalArgumentException.class,
+        () -> config.setTickRate(Configuration.MAX_TICK_RATE + 1));
+  }
+
   @Test
   public void testCorruptConfiguration() throws IOException, DocumentException {
     try {
@@ -224,4 +604,348 @@ public class Tests {
     Assert.assertEquals("test2", logs.get(1).message());
     Assert.assertEquals("test3", logs.get(2).message());
   }
+
+  @Test
+  public void testChangedAreaTurnAndStill() {
+    Domain game = gameOf(
+        "___________",
+        "___________",
+        "___________",
+        "___________",
+        "____H______",
+        "___________",
+        "___________",
+        "___________",
+        "___________",
+        "___________",
+        "X______$___");
+    List<Rectangle> repainted = new ArrayList<>();
+    MazeRenderer renderer = rendererOf(game, repainted);
+
+    // the first snapshot is painted whole
+    renderer.show(RenderSnapshot.of(game, 0, 7));
+    assertEquals(List.of(new Rectangle(0, 0, 700, 700)), repainted);
+
+    // nothing changed, nothing is repainted
+    repainted.clear();
+    renderer.show(RenderSnapshot.of(game, 0, 7));
+    assertEquals(List.of(), repainted);
+
+    // a new texture pack with nothing moving repaints everything
+    try {
+      renderer.setTexturePack("Cats");
+      assertEquals(List.of(new Rectangle(0, 0, 700, 700)), repainted);
+      repainted.clear();
+      renderer.show(RenderSnapshot.of(game, 0, 7));
+      assertEquals(List.of(), repainted);
+    } finally {
+      renderer.setTexturePack("Dogs");
+      repainted.clear();
+    }
+
+    // the hero turns to walk over plain floor, only the hero tile looks different
+    game.moveRight();
+    game.pingDomain();
+    renderer.show(RenderSnapshot.of(game, 0, 7));
+    assertEquals(List.of(new Rectangle(300, 300, 100, 100)), repainted);
+
+    // walking on the same way over plain floor looks the same
+    repainted.clear();
+    game.moveRight();
+    game.pingDomain();
+    renderer.show(RenderSnapshot.of(game, 0, 7));
+    assertEquals(List.of(), repainted);
+  }
+
+  @Test
+  public void testChangedAreaHeroMoved() {
+    Domain game = gameOf(
+        "_________",
+        "_________",
+        "_________",
+        "_________",
+        "___H__/__",
+        "_________",
+        "_________",
+        "_________",
+        "X______$_");
+    List<Rectangle> repainted = new ArrayList<>();
+    MazeRenderer renderer = rendererOf(game, repainted);
+    renderer.show(RenderSnapshot.of(game, 0, 7));
+    repainted.clear();
+
+    // the wall moves from the tile at (6, 3) of the view to (5, 3), and the hero turns
+    game.moveRight();
+    game.pingDomain();
+    renderer.show(RenderSnapshot.of(game, 0, 7));
+    assertEquals(List.of(new Rectangle(300, 300, 400, 100)), repainted);
+  }
+
+  @Test
+  public void testChangedAreaInfo() {
+    Domain game = gameOf(
+        "_________",
+        "_________",
+        "_________",
+        "____i____",
+        "____H____",
+        "_________",
+        "_________",
+        "_________",
+        "X______$_");
+    List<Rectangle> repainted = new ArrayList<>();
+    MazeRenderer renderer = rendererOf(game, repainted);
+    renderer.show(RenderSnapshot.of(game, 0, 7));
+    repainted.clear();
+
+    // the hero, already facing up, steps on the info tile: the tile above and the info pop up
+    game.moveUp();
+    game.pingDomain();
+    RenderSnapshot onInfo = RenderSnapshot.of(game, 0, 7);
+    assertTrue(onInfo.heroOnInfo());
+    renderer.show(onInfo);
+    assertEquals(List.of(new Rectangle(250, 100, 200, 200)), repainted);
+
+    // the hero turns and steps off: the tile above, the hero tile and the info pop up
+    repainted.clear();
+    game.moveDown();
+    game.pingDomain();
+    RenderSnapshot offInfo = RenderSnapshot.of(game, 0, 7);
+    assertFalse(offInfo.heroOnInfo());
+    renderer.show(offInfo);
+    assertEquals(List.of(new Rectangle(250, 100, 200, 300)), repainted);
+  }
+
+  @Test
+  public void testRenderSnapshotEdges() {
+    Domain game = gameOf(
+        "///",
+        "/H/",
+        "///");
+    RenderSnapshot frame = RenderSnapshot.of(game, 5, 7);
+
+    assertEquals(1, frame.heroX());
+    assertEquals(1, frame.heroY());
+    assertEquals(5, frame.timeLeft());
+    assertEquals(TileType.Hero, frame.cellAt(1, 1).type());
+    assertEquals(TileType.Wall, frame.cellAt(0, 0).type());
+    assertEquals(TileType.Wall, frame.cellAt(2, 2).type());
+    // off the maze, inside and outside the view
+    assertEquals(TileType.Periphery, frame.cellAt(-1, 1).type());
+    assertEquals(TileType.Periphery, frame.cellAt(3, 4).type());
+    assertEquals(TileType.Periphery, frame.cellAt(-5, -5).type());
+    assertEquals(TileType.Periphery, frame.cellAt(100, 1).type());
+  }
+
+  @Test
+  public void testRenderSnapshotNoHero() {
+    Domain game = gameOf(
+        "/_/",
+        "___",
+        "/_/");
+    RenderSnapshot frame = RenderSnapshot.of(game, 0, 7);
+
+    // the view is centred on the corner of the maze
+    assertEquals(0, frame.heroX());
+    assertEquals(0, frame.heroY());
+    assertEquals(Direction.None, frame.heroFacing());
+    assertFalse(frame.heroOnInfo());
+    assertEquals(TileType.Wall, frame.cellAt(0, 0).type());
+    assertEquals(TileType.Floor, frame.cellAt(1, 1).type());
+    assertEquals(TileType.Periphery, frame.cellAt(-3, -3).type());
+    assertEquals(TileType.Periphery, frame.cellAt(4, 0).type());
+
+    // only the maze looks different than the empty snapshot, the rest of the view is periphery
+    List<Rectangle> repainted = new ArrayList<>();
+    rendererOf(game, repainted).show(frame);
+    assertEquals(List.of(new Rectangle(300, 300, 300, 300)), repainted);
+  }
+
+  @Test
+  public void testReplayStepBackOverOneTick() {
+    List<Pair<Long, Actions>> inputs = List.of(
+        new Pair<>(3L, MOVE_RIGHT), new Pair<>(3L, MOVE_DOWN), new Pair<>(6L, MOVE_LEFT));
+    ReplayTimeline<Actions> timeline =
+        new ReplayTimeline<>(new RecordTimeline<>(Actions.class, inputs));
+    ReplaySeeker seeker = new ReplaySeeker(timeline, true, game -> { });
+    Domain game = gameOf(REPLAY_MAZE);
+    HeadlessRunner replay = new HeadlessRunner(game, 0, true);
+
+    // both actions of tick 3 are replayed on one tick
+    replayTicks(seeker, replay, timeline, 4);
+    assertEquals(2, timeline.position());
+
+    // stepping back goes to before both of them, as a straight run to tick 3 is
+    ReplaySeeker.Position back = seeker.stepBack(game, replay.getTimePlayed());
+    assertEquals(0, timeline.position());
+    assertSameRun(back, inputs, 3);
+
+    // after the last action, stepping back goes to before it
+    game = back.game();
+    replay = new HeadlessRunner(game, back.timePlayed(), true);
+    replayTicks(seeker, replay, timeline, 5);
+    assertEquals(3, timeline.position());
+    back = seeker.stepBack(game, replay.getTimePlayed());
+    assertEquals(2, timeline.position());
+    assertSameRun(back, inputs, 6);
+  }
+
+  @Test
+  public void testKeyframesAdd() {
+    Keyframes<String> keyframes = new Keyframes<>(100);
+    assertTrue(keyframes.add(1, 0, 0, () -> "a"));
+
+    // a second keyframe within the interval in the same level is not made
+    boolean[] made = {false};
+    assertFalse(keyframes.add(1, 99, 1, () -> {
+      made[0] = true;
+      return "b";
+    }));
+    assertFalse(made[0]);
+
+    // one the interval after it is, and so is one in another level, however near
+    assertTrue(keyframes.add(1, 100, 2, () -> "c"));
+    assertTrue(keyframes.add(2, 10, 3, () -> "d"));
+    assertEquals(3, keyframes.size());
+  }
+
+  @Test
+  public void testKeyframesFloor() {
+    Keyframes<String> keyframes = new Keyframes<>(100);
+    keyframes.add(1, 0, 0, () -> "a");
+    keyframes.add(1, 150, 2, () -> "b");
+    keyframes.add(2, 50, 3, () -> "c");
+    keyframes.add(2, 200, 5, () -> "d");
+
+    assertEquals("a", keyframes.floor(1, 149).state());
+    assertEquals("b", keyframes.floor(1, 10_000).state());
+    // the first of the level if they are all after the time, never one of another level
+    assertEquals("c", keyframes.floor(2, 0).state());
+    assertEquals("d", keyframes.floor(2, 200).state());
+    assertNull(keyframes.floor(3, 0));
+
+    // looking back for a position goes back into the levels before
+    assertEquals("d", keyframes.floorPosition(2, 300, 5).state());
+    assertEquals("c", keyframes.floorPosition(2, 300, 4).state());
+    assertEquals("b", keyframes.floorPosition(2, 300, 2).state());
+    assertEquals("a", keyframes.floorPosition(2, 100, 1).state());
+    assertEquals("a", keyframes.floorPosition(1, 149, 5).state());
+    assertNull(keyframes.floorPosition(2, 300, -1));
+  }
+
+  @Test
+  public void testReplaySeek() {
+    List<Pair<Long, Actions>> inputs = new ArrayList<>();
+    Actions[] moves = {MOVE_RIGHT, MOVE_DOWN, MOVE_LEFT, MOVE_UP};
+    for (int i = 0; i < 40; i++) {
+      inputs.add(new Pair<>(10L * i + 5, moves[i % moves.length]));
+    }
+    ReplayTimeline<Actions> timeline =
+        new ReplayTimeline<>(new RecordTimeline<>(Actions.class, inputs));
+    ReplaySeeker seeker = new ReplaySeeker(timeline, true, game -> { });
+    Domain game = gameOf(REPLAY_MAZE);
+    HeadlessRunner replay = new HeadlessRunner(game, 0, true);
+    replayTicks(seeker, replay, timeline, 320);
+    assertEquals(3, seeker.keyframeCount());
+
+    // back to between two keyframes
+    ReplaySeeker.Position back =
+        seeker.seek(game, replay.getTimePlayed(), 200 * HeadlessRunner.TICK_NANOS);
+    assertSameRun(back, inputs, 200);
+    assertEquals(20, timeline.position());
+
+    // forward past a keyframe, from the game moved back to
+    ReplaySeeker.Position forward =
+        seeker.seek(back.game(), back.timePlayed(), 310 * HeadlessRunner.TICK_NANOS);
+    assertSameRun(forward, inputs, 310);
+    assertEquals(31, timeline.position());
+
+    // forward past where the replay has been
+    forward = seeker.seek(forward.game(), forward.timePlayed(), 390 * HeadlessRunner.TICK_NANOS);
+    assertSameRun(forward, inputs, 390);
+    assertEquals(39, timeline.position());
+  }
+
+  /**
+   * A maze for replays, with room to walk around the hero for more ticks than a keyframe apart.
+   */
+  private static final String[] REPLAY_MAZE = {
+      "_________",
+      "_________",
+      "_________",
+      "_________",
+      "____H____",
+      "_________",
+      "_________",
+      "_________",
+      "X______$_"};
+
+  /**
+   * Replay a game for some ticks the way a replay does, keeping keyframes before each tick.
+   *
+   * @param seeker   the seeker of the replay
+   * @param replay   the runner of the replayed game
+   * @param timeline the actions of the replay
+   * @param ticks    the number of ticks
+   */
+  private static void replayTicks(ReplaySeeker seeker, HeadlessRunner replay,
+      ReplayTimeline<Actions> timeline, int ticks) {
+    for (int i = 0; i < ticks; i++) {
+      seeker.keyframe(replay.getGame(), replay.getTimePlayed());
+      replay.tick(timeline);
+    }
+  }
+
+  /**
+   * Check that a replay was moved to the same game as a straight run from the start.
+   *
+   * @param moved  where the replay was moved to
+   * @param inputs the actions of the replay
+   * @param ticks  the number of ticks of the straight run
+   */
+  private static void assertSameRun(ReplaySeeker.Position moved, List<Pair<Long, Actions>> inputs,
+      int ticks) {
+    Domain straight = gameOf(REPLAY_MAZE);
+    new HeadlessRunner(straight).run(ticks, inputs);
+    assertEquals(straight.getTick(), moved.game().getTick());
+    assertEquals(straight.stateHash(), moved.game().stateHash());
+    assertEquals(ticks * HeadlessRunner.TICK_NANOS, moved.timePlayed());
+  }
+
+  /**
+   * Make a game of one level from rows of tile symbols.
+   *
+   * @param rows the rows of the maze, top to bottom
+   * @return the game
+   */
+  private static Domain gameOf(String... rows) {
+    Tile[][] tiles = new Tile[rows[0].length()][rows.length];
+    for (int y = 0; y < rows.length; y++) {
+      for (int x = 0; x < rows[y].length(); x++) {
+        tiles[x][y] = TileType.makeTileFromSymbol(rows[y].charAt(x), new TileInfo(new Loc(x, y)));
+      }
+    }
+    return new Domain(List.of(new Maze(tiles)), new Inventory(8), 1);
+  }
+
+  /**
+   * Make a renderer of a game, 700 by 700 with 7 tiles across, that keeps the areas it is asked
+   * to repaint instead of painting them.
+   *
+   * @param game      the game
+   * @param repainted the list the areas are added to
+   * @return the renderer
+   */
+  private static MazeRenderer rendererOf(Domain game, List<Rectangle> repainted) {
+    MazeRenderer renderer = new MazeRenderer(game) {
+      @Override
+      public void repaint(long tm, int x, int y, int width, int height) {
+        repainted.add(new Rectangle(x, y, width, height));
+      }
+    };
+    renderer.setRenderSize(7);
+    renderer.setSize(700, 700);
+    repainted.clear();
+    return renderer;
+  }
 }